@@ -59,6 +59,8 @@ public class RunCommand extends OptionParsingCommand {
 
 		private OptionSpec<Void> watchOption;
 
+		private OptionSpec<Long> watchQuietPeriodOption;
+
 		private OptionSpec<Void> editOption;
 
 		private OptionSpec<Void> noGuessImportsOption;
@@ -78,6 +80,10 @@ public class RunCommand extends OptionParsingCommand {
 		@Override
 		protected void options() {
 			this.watchOption = option("watch", "Watch the specified file for changes");
+			this.watchQuietPeriodOption = option("watch-quiet-period",
+					"Time that files must be unchanged before restarting when watching")
+					.withRequiredArg().ofType(Long.class).describedAs("milliseconds")
+					.defaultsTo(500L);
 			this.localOption = option("local",
 					"Accumulate the dependencies in a local folder (./grapes)");
 			this.editOption = option(asList("edit", "e"),
@@ -155,6 +161,11 @@ public class RunCommand extends OptionParsingCommand {
 				return this.options.has(RunOptionHandler.this.watchOption);
 			}
 
+			@Override
+			public long getWatchQuietPeriod() {
+				return this.options.valueOf(RunOptionHandler.this.watchQuietPeriodOption);
+			}
+
 			@Override
 			public boolean isGuessImports() {
 				return !this.options.has(RunOptionHandler.this.noGuessImportsOption);
@@ -0,0 +1,356 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.cli.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.CompilationCustomizer;
+
+/**
+ * Disk cache of the classes compiled by the {@link GroovyCompiler} along with the
+ * classpath (including any dependencies resolved by Grape) that was used to compile them.
+ * Entries are keyed by a hash of the source files, the CLI version, the compiler
+ * configuration and the jars on the classpath so that unchanged sources need not be
+ * compiled again. Other sources that are resolved by the class loader during compilation
+ * are not part of the key so classes compiled with them should not be cached. Only the
+ * most recently used entries are kept.
+ *
+ * @author agent
+ */
+class CompiledClassCache {
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int BUFFER_SIZE = 4096;
+
+	private static final int DEFAULT_MAX_ENTRIES = 100;
+
+	private static final String FILE_EXTENSION = ".classes";
+
+	private final File directory;
+
+	private final int maxEntries;
+
+	/**
+	 * Create a new {@link CompiledClassCache} instance.
+	 * @param directory the cache directory
+	 */
+	public CompiledClassCache(File directory) {
+		this(directory, DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Create a new {@link CompiledClassCache} instance.
+	 * @param directory the cache directory
+	 * @param maxEntries the maximum number of entries to keep
+	 */
+	CompiledClassCache(File directory, int maxEntries) {
+		this.directory = directory;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Return the cache key for the specified sources.
+	 * @param configuration the compiler configuration
+	 * @param compilerConfiguration the groovy compiler configuration
+	 * @param files the source files
+	 * @return the key
+	 * @throws IOException if the source files cannot be read
+	 */
+	public String getKey(GroovyCompilerConfiguration configuration,
+			CompilerConfiguration compilerConfiguration, File... files)
+			throws IOException {
+		MessageDigest digest = getMessageDigest();
+		update(digest, FORMAT_VERSION);
+		update(digest, getVersion());
+		update(digest, configuration.isGuessImports());
+		update(digest, configuration.isGuessDependencies());
+		update(digest, configuration.getClasspath());
+		for (String path : configuration.getClasspath().split(File.pathSeparator)) {
+			File file = new File(path);
+			if (file.isFile()) {
+				// Jar contents can change without the classpath changing
+				update(digest, file.length());
+				update(digest, file.lastModified());
+			}
+		}
+		update(digest, System.getProperty("grape.root"));
+		for (CompilationCustomizer customizer : compilerConfiguration
+				.getCompilationCustomizers()) {
+			update(digest, customizer.getClass().getName());
+		}
+		for (File file : files) {
+			update(digest, file.getName());
+			updateWithContent(digest, file);
+		}
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest()) {
+			key.append(String.format("%02x", b & 0xFF));
+		}
+		return key.toString();
+	}
+
+	private String getVersion() {
+		String version = getClass().getPackage().getImplementationVersion();
+		if (version == null || version.endsWith("SNAPSHOT")) {
+			// Snapshots change without the version changing so use the timestamp too
+			File codeSource = getCodeSource();
+			version = version
+					+ (codeSource == null ? "" : "@" + codeSource.lastModified());
+		}
+		return version;
+	}
+
+	private File getCodeSource() {
+		try {
+			return new File(getClass().getProtectionDomain().getCodeSource()
+					.getLocation().toURI());
+		}
+		catch (Exception ex) {
+			return null;
+		}
+	}
+
+	private void update(MessageDigest digest, Object value) {
+		try {
+			digest.update(String.valueOf(value).getBytes("UTF-8"));
+			digest.update((byte) 0);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private void updateWithContent(MessageDigest digest, File file) throws IOException {
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int bytesRead;
+			while ((bytesRead = inputStream.read(buffer)) != -1) {
+				digest.update(buffer, 0, bytesRead);
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	private MessageDigest getMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Return the cached classes for the specified key.
+	 * @param key the cache key
+	 * @return the cached classes or {@code null} if there are no cached classes or the
+	 * classpath used to compile them is no longer available
+	 */
+	public CompiledClasses get(String key) {
+		File file = getFile(key);
+		if (!file.isFile()) {
+			return null;
+		}
+		// Mark as recently used so that the entry is not evicted
+		file.setLastModified(System.currentTimeMillis());
+		try {
+			DataInputStream inputStream = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			try {
+				CompiledClasses compiledClasses = new CompiledClasses(
+						inputStream.readUTF());
+				int classCount = inputStream.readInt();
+				for (int i = 0; i < classCount; i++) {
+					String name = inputStream.readUTF();
+					byte[] bytes = new byte[inputStream.readInt()];
+					inputStream.readFully(bytes);
+					compiledClasses.addClass(name, bytes);
+				}
+				int urlCount = inputStream.readInt();
+				for (int i = 0; i < urlCount; i++) {
+					URL url = new URL(inputStream.readUTF());
+					if (!exists(url)) {
+						return null;
+					}
+					compiledClasses.addUrl(url);
+				}
+				return compiledClasses;
+			}
+			finally {
+				inputStream.close();
+			}
+		}
+		catch (IOException ex) {
+			// Corrupt or incompatible entry, the sources will be compiled again
+			return null;
+		}
+	}
+
+	private boolean exists(URL url) {
+		if (!"file".equals(url.getProtocol())) {
+			return true;
+		}
+		try {
+			return new File(url.toURI()).exists();
+		}
+		catch (URISyntaxException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Store compiled classes against the specified key.
+	 * @param key the cache key
+	 * @param compiledClasses the compiled classes
+	 * @throws IOException if the cache cannot be written
+	 */
+	public void put(String key, CompiledClasses compiledClasses) throws IOException {
+		File file = getFile(key);
+		File parent = file.getParentFile();
+		if (!parent.exists() && !parent.mkdirs()) {
+			throw new IOException("Unable to create cache directory " + parent);
+		}
+		File temp = new File(parent, file.getName() + ".tmp");
+		DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(temp)));
+		try {
+			outputStream.writeUTF(compiledClasses.getMainClassName());
+			outputStream.writeInt(compiledClasses.getClasses().size());
+			for (Map.Entry<String, byte[]> entry : compiledClasses.getClasses()
+					.entrySet()) {
+				outputStream.writeUTF(entry.getKey());
+				outputStream.writeInt(entry.getValue().length);
+				outputStream.write(entry.getValue());
+			}
+			outputStream.writeInt(compiledClasses.getUrls().size());
+			for (URL url : compiledClasses.getUrls()) {
+				outputStream.writeUTF(url.toString());
+			}
+		}
+		finally {
+			outputStream.close();
+		}
+		file.delete();
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Unable to write cache file " + file);
+		}
+		evict();
+	}
+
+	/**
+	 * Delete the least recently used entries so that no more than the maximum number of
+	 * entries are kept.
+	 */
+	private void evict() {
+		File[] files = this.directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(FILE_EXTENSION);
+			}
+		});
+		if (files == null || files.length <= this.maxEntries) {
+			return;
+		}
+		final Map<File, Long> lastModified = new HashMap<File, Long>();
+		for (File file : files) {
+			lastModified.put(file, file.lastModified());
+		}
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				return lastModified.get(o2).compareTo(lastModified.get(o1));
+			}
+		});
+		for (int i = this.maxEntries; i < files.length; i++) {
+			files[i].delete();
+		}
+	}
+
+	private File getFile(String key) {
+		return new File(this.directory, key + FILE_EXTENSION);
+	}
+
+	/**
+	 * Classes compiled from a set of sources.
+	 */
+	public static class CompiledClasses {
+
+		private final String mainClassName;
+
+		private final Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+
+		private final List<URL> urls = new ArrayList<URL>();
+
+		public CompiledClasses(String mainClassName) {
+			this.mainClassName = mainClassName;
+		}
+
+		public void addClass(String name, byte[] bytes) {
+			this.classes.put(name, bytes);
+		}
+
+		public void addUrl(URL url) {
+			this.urls.add(url);
+		}
+
+		public String getMainClassName() {
+			return this.mainClassName;
+		}
+
+		/**
+		 * Return the class bytes, keyed by class name, in the order that the classes
+		 * were defined.
+		 * @return the classes
+		 */
+		public Map<String, byte[]> getClasses() {
+			return Collections.unmodifiableMap(this.classes);
+		}
+
+		public List<URL> getUrls() {
+			return Collections.unmodifiableList(this.urls);
+		}
+
+	}
+
+}
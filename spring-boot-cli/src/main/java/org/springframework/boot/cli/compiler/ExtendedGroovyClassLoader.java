@@ -22,7 +22,9 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.codehaus.groovy.ast.ClassNode;
@@ -62,16 +64,48 @@ class ExtendedGroovyClassLoader extends GroovyClassLoader {
 		return this.configuration;
 	}
 
+	/**
+	 * Return the bytes of a class previously compiled by this loader.
+	 * @param className the class name
+	 * @return the class bytes or {@code null}
+	 */
+	public byte[] getClassBytes(String className) {
+		return this.classResources.get(getClassResourceName(className));
+	}
+
+	/**
+	 * Define classes that were previously compiled, for example by an earlier run.
+	 * @param classes the class bytes keyed by class name, in the order that they should
+	 * be defined
+	 * @return the defined classes
+	 */
+	public List<Class<?>> defineClasses(Map<String, byte[]> classes) {
+		InnerLoader loader = createInnerLoader();
+		List<Class<?>> definedClasses = new ArrayList<Class<?>>();
+		for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+			definedClasses.add(loader.defineClass(entry.getKey(), entry.getValue()));
+			this.classResources.put(getClassResourceName(entry.getKey()),
+					entry.getValue());
+		}
+		return definedClasses;
+	}
+
 	@Override
 	public ClassCollector createCollector(CompilationUnit unit, SourceUnit su) {
-		InnerLoader loader = AccessController
-				.doPrivileged(new PrivilegedAction<InnerLoader>() {
-					@Override
-					public InnerLoader run() {
-						return new InnerLoader(ExtendedGroovyClassLoader.this);
-					}
-				});
-		return new ExtendedClassCollector(loader, unit, su);
+		return new ExtendedClassCollector(createInnerLoader(), unit, su);
+	}
+
+	private InnerLoader createInnerLoader() {
+		return AccessController.doPrivileged(new PrivilegedAction<InnerLoader>() {
+			@Override
+			public InnerLoader run() {
+				return new InnerLoader(ExtendedGroovyClassLoader.this);
+			}
+		});
+	}
+
+	private String getClassResourceName(String className) {
+		return className.replace(".", "/") + ".class";
 	}
 
 	/**
@@ -87,8 +121,8 @@ class ExtendedGroovyClassLoader extends GroovyClassLoader {
 		@Override
 		protected Class<?> createClass(byte[] code, ClassNode classNode) {
 			Class<?> createdClass = super.createClass(code, classNode);
-			ExtendedGroovyClassLoader.this.classResources.put(classNode.getName()
-					.replace(".", "/") + ".class", code);
+			ExtendedGroovyClassLoader.this.classResources.put(
+					getClassResourceName(classNode.getName()), code);
 			return createdClass;
 		}
 	}
@@ -22,10 +22,14 @@ import groovy.lang.GroovyClassLoader.ClassCollector;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ServiceLoader;
+import java.util.Set;
 
 import org.codehaus.groovy.ast.ClassNode;
 import org.codehaus.groovy.classgen.GeneratorContext;
@@ -37,6 +41,7 @@ import org.codehaus.groovy.control.Phases;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.control.customizers.CompilationCustomizer;
 import org.codehaus.groovy.control.customizers.ImportCustomizer;
+import org.springframework.boot.cli.compiler.CompiledClassCache.CompiledClasses;
 
 /**
  * Compiler for Groovy source files. Primarily a simple Facade for
@@ -50,6 +55,10 @@ import org.codehaus.groovy.control.customizers.ImportCustomizer;
  * 
  * <li>Generated class files can also be loaded using
  * {@link ClassLoader#getResource(String)}</li>
+ * 
+ * <li>Compiled classes are cached on disk (in <code>~/.springcli/compiled</code>) so that
+ * unchanged sources are not compiled again. The cache can be disabled by setting the
+ * <code>disableCompiledClassCache</code> system property to <code>true</code></li>
  * <ul>
  * 
  * @author Phillip Webb
@@ -61,6 +70,8 @@ public class GroovyCompiler {
 
 	private ExtendedGroovyClassLoader loader;
 
+	private CompiledClassCache cache;
+
 	/**
 	 * Create a new {@link GroovyCompiler} instance.
 	 * @param configuration the compiler configuration
@@ -76,6 +87,10 @@ public class GroovyCompiler {
 		new GrapeEngineCustomizer(Grape.getInstance()).customize();
 		compilerConfiguration
 				.addCompilationCustomizers(new CompilerAutoConfigureCustomizer());
+		if (!Boolean.getBoolean("disableCompiledClassCache")) {
+			this.cache = new CompiledClassCache(new File(
+					System.getProperty("user.home"), ".springcli/compiled"));
+		}
 	}
 
 	public void addCompilationCustomizers(CompilationCustomizer... customizers) {
@@ -115,6 +130,15 @@ public class GroovyCompiler {
 
 		CompilerConfiguration compilerConfiguration = this.loader.getConfiguration();
 
+		String cacheKey = null;
+		if (this.cache != null) {
+			cacheKey = this.cache.getKey(this.configuration, compilerConfiguration, file);
+			CompiledClasses cached = this.cache.get(cacheKey);
+			if (cached != null) {
+				return getCachedClasses(cached);
+			}
+		}
+
 		CompilationUnit compilationUnit = new CompilationUnit(compilerConfiguration,
 				null, this.loader);
 		SourceUnit sourceUnit = new SourceUnit(file[0], compilerConfiguration,
@@ -130,9 +154,63 @@ public class GroovyCompiler {
 		}
 		ClassNode mainClassNode = (ClassNode) compilationUnit.getAST().getClasses()
 				.get(0);
+
+		if (cacheKey != null && !hasAdditionalSources(compilationUnit, file)) {
+			putCachedClasses(cacheKey, mainClassNode.getName(), classes);
+		}
+
+		return sortMainClassFirst(classes, mainClassNode.getName());
+
+	}
+
+	/**
+	 * Determine if other sources (for example resolved from the classpath) were compiled
+	 * along with the specified files. Such sources are not part of the cache key so the
+	 * compiled classes should not be cached.
+	 */
+	private boolean hasAdditionalSources(CompilationUnit compilationUnit, File[] files) {
+		int sources = 0;
+		Iterator<SourceUnit> iterator = compilationUnit.iterator();
+		while (iterator.hasNext()) {
+			iterator.next();
+			sources++;
+		}
+		return sources > files.length;
+	}
+
+	private Class<?>[] getCachedClasses(CompiledClasses cached) {
+		Set<URL> urls = new HashSet<URL>(Arrays.asList(this.loader.getURLs()));
+		for (URL url : cached.getUrls()) {
+			if (!urls.contains(url)) {
+				this.loader.addURL(url);
+			}
+		}
+		List<Class<?>> classes = this.loader.defineClasses(cached.getClasses());
+		return sortMainClassFirst(classes, cached.getMainClassName());
+	}
+
+	private void putCachedClasses(String cacheKey, String mainClassName,
+			List<Class<?>> classes) {
+		CompiledClasses compiledClasses = new CompiledClasses(mainClassName);
+		for (Class<?> compiledClass : classes) {
+			compiledClasses.addClass(compiledClass.getName(),
+					this.loader.getClassBytes(compiledClass.getName()));
+		}
+		for (URL url : this.loader.getURLs()) {
+			compiledClasses.addUrl(url);
+		}
+		try {
+			this.cache.put(cacheKey, compiledClasses);
+		}
+		catch (IOException ex) {
+			// Not fatal, the sources will be compiled again next time
+		}
+	}
+
+	private Class<?>[] sortMainClassFirst(List<Class<?>> classes, String mainClassName) {
 		Class<?> mainClass = null;
 		for (Class<?> loadedClass : classes) {
-			if (mainClassNode.getName().equals(loadedClass.getName())) {
+			if (mainClassName.equals(loadedClass.getName())) {
 				mainClass = loadedClass;
 			}
 		}
@@ -142,7 +220,6 @@ public class GroovyCompiler {
 		}
 
 		return classes.toArray(new Class<?>[classes.size()]);
-
 	}
 
 	/**
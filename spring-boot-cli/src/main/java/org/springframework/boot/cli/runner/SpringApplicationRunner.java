@@ -18,7 +18,8 @@ package org.springframework.boot.cli.runner;
 
 import java.io.File;
 import java.lang.reflect.Method;
-import java.util.concurrent.TimeUnit;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 
 import org.springframework.boot.cli.compiler.GroovyCompiler;
@@ -169,35 +170,39 @@ public class SpringApplicationRunner {
 	}
 
 	/**
-	 * Thread to watch for file changes and trigger recompile/reload.
+	 * Thread to watch for file changes and trigger recompile/reload. Changes are
+	 * coalesced until the files have been unchanged for the configured quiet period so
+	 * that several changes only trigger a single recompile.
 	 */
 	private class FileWatchThread extends Thread {
 
-		private long previous;
+		private static final long POLL_INTERVAL = 100;
+
+		private Map<File, Long> previous;
 
 		public FileWatchThread() {
 			super("filewatcher-" + (watcherCounter++));
-			this.previous = 0;
-			for (File file : SpringApplicationRunner.this.files) {
-				long current = file.lastModified();
-				if (current > this.previous) {
-					this.previous = current;
-				}
-			}
+			this.previous = getSnapshot();
 			setDaemon(false);
 		}
 
 		@Override
 		public void run() {
+			long quietPeriod = SpringApplicationRunner.this.configuration
+					.getWatchQuietPeriod();
+			long lastChange = 0;
 			while (true) {
 				try {
-					Thread.sleep(TimeUnit.SECONDS.toMillis(1));
-					for (File file : SpringApplicationRunner.this.files) {
-						long current = file.lastModified();
-						if (this.previous < current) {
-							this.previous = current;
-							compileAndRun();
-						}
+					Thread.sleep(POLL_INTERVAL);
+					Map<File, Long> current = getSnapshot();
+					long now = System.currentTimeMillis();
+					if (!current.equals(this.previous)) {
+						this.previous = current;
+						lastChange = now;
+					}
+					else if (lastChange != 0 && now - lastChange >= quietPeriod) {
+						lastChange = 0;
+						compileAndRun();
 					}
 				}
 				catch (InterruptedException ex) {
@@ -209,6 +214,14 @@ public class SpringApplicationRunner {
 			}
 		}
 
+		private Map<File, Long> getSnapshot() {
+			Map<File, Long> snapshot = new HashMap<File, Long>();
+			for (File file : SpringApplicationRunner.this.files) {
+				snapshot.put(file, file.lastModified());
+			}
+			return snapshot;
+		}
+
 	}
 
 	public void stop() {
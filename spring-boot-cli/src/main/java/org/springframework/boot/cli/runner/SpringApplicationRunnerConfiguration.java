@@ -33,6 +33,13 @@ public interface SpringApplicationRunnerConfiguration extends GroovyCompilerConf
 	 */
 	boolean isWatchForFileChanges();
 
+	/**
+	 * Returns the period (in milliseconds) that watched files must remain unchanged
+	 * before they are recompiled. Allows several changes (for example, an editor saving
+	 * multiple files) to trigger a single restart.
+	 */
+	long getWatchQuietPeriod();
+
 	/**
 	 * Returns the logging level to use.
 	 */
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.cli.compiler;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.cli.compiler.CompiledClassCache.CompiledClasses;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link CompiledClassCache}.
+ *
+ * @author agent
+ */
+public class CompiledClassCacheTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private CompiledClassCache cache;
+
+	private CompilerConfiguration compilerConfiguration = new CompilerConfiguration();
+
+	@Before
+	public void setup() throws Exception {
+		this.cache = new CompiledClassCache(this.temporaryFolder.newFolder("cache"));
+	}
+
+	@Test
+	public void sameKeyForSameSource() throws Exception {
+		File source = createSource("app.groovy", "class App {}");
+		assertEquals(getKey(true, source), getKey(true, source));
+	}
+
+	@Test
+	public void differentKeyForChangedSource() throws Exception {
+		File source = createSource("app.groovy", "class App {}");
+		String key = getKey(true, source);
+		createSource("app.groovy", "class App { }");
+		assertFalse(key.equals(getKey(true, source)));
+	}
+
+	@Test
+	public void differentKeyForChangedConfiguration() throws Exception {
+		File source = createSource("app.groovy", "class App {}");
+		assertFalse(getKey(true, source).equals(getKey(false, source)));
+	}
+
+	@Test
+	public void differentKeyForChangedClasspathJar() throws Exception {
+		File source = createSource("app.groovy", "class App {}");
+		File jar = createSource("lib.jar", "jar");
+		String key = getKey(true, jar.getPath(), source);
+		createSource("lib.jar", "changed");
+		assertFalse(key.equals(getKey(true, jar.getPath(), source)));
+	}
+
+	@Test
+	public void putAndGet() throws Exception {
+		CompiledClasses compiledClasses = new CompiledClasses("App");
+		compiledClasses.addClass("App", new byte[] { 1, 2, 3 });
+		compiledClasses.addClass("App$_closure1", new byte[] { 4, 5 });
+		compiledClasses.addUrl(this.temporaryFolder.getRoot().toURI().toURL());
+		this.cache.put("key", compiledClasses);
+		CompiledClasses cached = this.cache.get("key");
+		assertEquals("App", cached.getMainClassName());
+		assertEquals(compiledClasses.getClasses().keySet(), cached.getClasses()
+				.keySet());
+		assertArrayEquals(new byte[] { 4, 5 }, cached.getClasses().get("App$_closure1"));
+		assertEquals(compiledClasses.getUrls(), cached.getUrls());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() throws Exception {
+		File directory = this.temporaryFolder.newFolder("evict");
+		CompiledClassCache cache = new CompiledClassCache(directory, 2);
+		cache.put("a", new CompiledClasses("A"));
+		cache.put("b", new CompiledClasses("B"));
+		new File(directory, "a.classes").setLastModified(1000);
+		new File(directory, "b.classes").setLastModified(2000);
+		assertNotNull(cache.get("a"));
+		cache.put("c", new CompiledClasses("C"));
+		assertNotNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		assertNotNull(cache.get("c"));
+	}
+
+	@Test
+	public void getMissing() throws Exception {
+		assertNull(this.cache.get("missing"));
+	}
+
+	@Test
+	public void getWithMissingDependency() throws Exception {
+		CompiledClasses compiledClasses = new CompiledClasses("App");
+		compiledClasses.addClass("App", new byte[] { 1, 2, 3 });
+		compiledClasses.addUrl(new File(this.temporaryFolder.getRoot(), "missing.jar")
+				.toURI().toURL());
+		this.cache.put("key", compiledClasses);
+		assertNull(this.cache.get("key"));
+	}
+
+	private String getKey(boolean guess, File source) throws IOException {
+		return getKey(guess, "", source);
+	}
+
+	private String getKey(final boolean guess, final String classpath, File source)
+			throws IOException {
+		GroovyCompilerConfiguration configuration = new GroovyCompilerConfiguration() {
+
+			@Override
+			public boolean isGuessImports() {
+				return guess;
+			}
+
+			@Override
+			public boolean isGuessDependencies() {
+				return guess;
+			}
+
+			@Override
+			public String getClasspath() {
+				return classpath;
+			}
+
+		};
+		return this.cache.getKey(configuration, this.compilerConfiguration, source);
+	}
+
+	private File createSource(String name, String content) throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), name);
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(content);
+		}
+		finally {
+			writer.close();
+		}
+		return file;
+	}
+
+}
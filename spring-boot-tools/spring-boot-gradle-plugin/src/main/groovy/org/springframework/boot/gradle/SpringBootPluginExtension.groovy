@@ -40,4 +40,12 @@ public class SpringBootPluginExtension {
 	 * If the original source archive should be backed-up before being repackaged.
 	 */
 	boolean backupSource = true;
+
+	/**
+	 * The classifier added to the name of the repackaged archive. If not specified
+	 * archives are repackaged in place. Setting a classifier leaves the original archive
+	 * untouched so that both the archive and the repackaged archive can be considered up
+	 * to date, and allows unchanged libraries to be reused when repackaging.
+	 */
+	String classifier
 }
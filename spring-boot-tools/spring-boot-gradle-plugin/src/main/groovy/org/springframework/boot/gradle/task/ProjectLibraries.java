@@ -37,6 +37,17 @@ class ProjectLibraries implements Libraries {
 		this.providedConfigurationName = providedConfigurationName;
 	}
 
+	/**
+	 * Returns all library files, regardless of scope.
+	 * @return the library files
+	 */
+	public FileCollection getFiles() {
+		FileCollection files = this.project.getConfigurations().getByName("runtime");
+		FileCollection provided = this.project.getConfigurations().findByName(
+				this.providedConfigurationName);
+		return (provided == null ? files : files.plus(provided));
+	}
+
 	@Override
 	public void doWithLibraries(LibraryCallback callback) throws IOException {
 
@@ -18,32 +18,71 @@ package org.springframework.boot.gradle.task;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.gradle.api.Action;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Project;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.bundling.Jar;
 import org.springframework.boot.gradle.SpringBootPluginExtension;
 import org.springframework.boot.loader.tools.Repackager;
 
 /**
- * Repackage task.
+ * Repackage task. The archives, libraries and configuration are declared as task inputs
+ * and the repackaged archives as outputs so that the task can be skipped when it is up
+ * to date.
  * 
  * @author Phillip Webb
  */
 public class Repackage extends DefaultTask {
 
+	public Repackage() {
+		getInputs().files(new Callable<List<File>>() {
+			@Override
+			public List<File> call() {
+				return getArchives(false);
+			}
+		});
+		getInputs().files(new Callable<FileCollection>() {
+			@Override
+			public FileCollection call() {
+				return getLibraries().getFiles();
+			}
+		});
+		getInputs().property("mainClass", new Callable<String>() {
+			@Override
+			public String call() {
+				return getExtension().getMainClass();
+			}
+		});
+		getInputs().property("providedConfiguration", new Callable<String>() {
+			@Override
+			public String call() {
+				return getExtension().getProvidedConfiguration();
+			}
+		});
+		getInputs().property("classifier", new Callable<String>() {
+			@Override
+			public String call() {
+				return getExtension().getClassifier();
+			}
+		});
+		getOutputs().files(new Callable<List<File>>() {
+			@Override
+			public List<File> call() {
+				return getArchives(true);
+			}
+		});
+	}
+
 	@TaskAction
 	public void repackage() {
-		Project project = getProject();
-		final SpringBootPluginExtension extension = project.getExtensions().getByType(
-				SpringBootPluginExtension.class);
-		final ProjectLibraries libraries = new ProjectLibraries(project);
-		if (extension.getProvidedConfiguration() != null) {
-			libraries.setProvidedConfigurationName(extension.getProvidedConfiguration());
-		}
-		project.getTasks().withType(Jar.class, new Action<Jar>() {
+		final SpringBootPluginExtension extension = getExtension();
+		final ProjectLibraries libraries = getLibraries();
+		getProject().getTasks().withType(Jar.class, new Action<Jar>() {
 			@Override
 			public void execute(Jar archive) {
 				File file = archive.getArchivePath();
@@ -51,8 +90,9 @@ public class Repackage extends DefaultTask {
 					Repackager repackager = new Repackager(file);
 					repackager.setMainClass(extension.getMainClass());
 					repackager.setBackupSource(extension.isBackupSource());
+					repackager.setIncremental(true);
 					try {
-						repackager.repackage(libraries);
+						repackager.repackage(getDestination(file), libraries);
 					}
 					catch (IOException ex) {
 						throw new IllegalStateException(ex.getMessage(), ex);
@@ -61,4 +101,41 @@ public class Repackage extends DefaultTask {
 			}
 		});
 	}
+
+	private SpringBootPluginExtension getExtension() {
+		return getProject().getExtensions().getByType(SpringBootPluginExtension.class);
+	}
+
+	private ProjectLibraries getLibraries() {
+		ProjectLibraries libraries = new ProjectLibraries(getProject());
+		SpringBootPluginExtension extension = getExtension();
+		if (extension.getProvidedConfiguration() != null) {
+			libraries.setProvidedConfigurationName(extension.getProvidedConfiguration());
+		}
+		return libraries;
+	}
+
+	private List<File> getArchives(boolean destinations) {
+		List<File> archives = new ArrayList<File>();
+		for (Jar archive : getProject().getTasks().withType(Jar.class)) {
+			File file = archive.getArchivePath();
+			archives.add(destinations ? getDestination(file) : file);
+		}
+		return archives;
+	}
+
+	private File getDestination(File file) {
+		String classifier = getExtension().getClassifier();
+		if (classifier == null || classifier.length() == 0) {
+			return file;
+		}
+		String name = file.getName();
+		int extension = name.lastIndexOf('.');
+		if (extension == -1) {
+			return new File(file.getParentFile(), name + "-" + classifier);
+		}
+		return new File(file.getParentFile(), name.substring(0, extension) + "-"
+				+ classifier + name.substring(extension));
+	}
+
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.boot.loader.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.loader.LaunchedURLClassLoader;
+import org.springframework.boot.loader.PackageIndex;
+import org.springframework.boot.loader.jar.RandomAccessJarFile;
+
+/**
+ * Benchmark that loads every class from the nested libraries of a synthetic executable
+ * jar using a new {@link LaunchedURLClassLoader}, simulating application startup. The
+ * class loader is created with the {@link PackageIndex} of the jar, as it is by the
+ * launcher, or without one for comparison.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClassLoadingBenchmark {
+
+	@Param({ "20", "100" })
+	public int libraries;
+
+	@Param({ "200" })
+	public int entriesPerLibrary;
+
+	@Param({ "true", "false" })
+	public boolean compressed;
+
+	@Param({ "true", "false" })
+	public boolean indexed;
+
+	private SyntheticFatJar fatJar;
+
+	private RandomAccessJarFile jarFile;
+
+	private URL[] urls;
+
+	private PackageIndex packageIndex;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.fatJar = new SyntheticFatJar(this.libraries, this.entriesPerLibrary,
+				this.compressed);
+		this.jarFile = new RandomAccessJarFile(this.fatJar.getFile());
+		List<String> libraryNames = this.fatJar.getLibraryNames();
+		this.urls = new URL[libraryNames.size()];
+		for (int i = 0; i < this.urls.length; i++) {
+			this.urls[i] = this.jarFile.getNestedJarFile(
+					this.jarFile.getEntry(libraryNames.get(i))).getUrl();
+		}
+		if (this.indexed) {
+			InputStream inputStream = this.jarFile.getInputStream(this.jarFile
+					.getEntry(PackageIndex.LOCATION));
+			try {
+				this.packageIndex = PackageIndex.load(inputStream);
+			}
+			finally {
+				inputStream.close();
+			}
+			this.packageIndex.bind(libraryNames);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		this.jarFile.close();
+		this.fatJar.delete();
+	}
+
+	@Benchmark
+	public void loadAllClasses(Blackhole blackhole) throws Exception {
+		LaunchedURLClassLoader classLoader = createClassLoader();
+		for (String className : this.fatJar.getClassNames()) {
+			blackhole.consume(classLoader.loadClass(className));
+		}
+	}
+
+	@Benchmark
+	public void findAllResources(Blackhole blackhole) throws Exception {
+		LaunchedURLClassLoader classLoader = createClassLoader();
+		for (String resourceName : this.fatJar.getResourceNames()) {
+			blackhole.consume(classLoader.getResource(resourceName));
+		}
+	}
+
+	private LaunchedURLClassLoader createClassLoader() {
+		// The index is immutable once bound so it can be shared between class loaders
+		return new LaunchedURLClassLoader(this.urls, getClass().getClassLoader()
+				.getParent(), this.packageIndex);
+	}
+
+}
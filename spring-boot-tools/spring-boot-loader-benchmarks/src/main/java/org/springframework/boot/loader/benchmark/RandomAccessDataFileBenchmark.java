@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.boot.loader.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.loader.data.RandomAccessData;
+import org.springframework.boot.loader.data.RandomAccessDataFile;
+
+/**
+ * Benchmarks for reading subsections of a {@link RandomAccessDataFile} from one or more
+ * threads.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RandomAccessDataFileBenchmark {
+
+	private static final int FILE_SIZE = 32 * 1024 * 1024;
+
+	@Param({ "512", "8192" })
+	public int readSize;
+
+	private File file;
+
+	private RandomAccessDataFile data;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.file = File.createTempFile("benchmark", ".dat");
+		this.file.deleteOnExit();
+		byte[] buffer = new byte[64 * 1024];
+		new Random(0).nextBytes(buffer);
+		OutputStream outputStream = new FileOutputStream(this.file);
+		try {
+			for (int written = 0; written < FILE_SIZE; written += buffer.length) {
+				outputStream.write(buffer);
+			}
+		}
+		finally {
+			outputStream.close();
+		}
+		this.data = new RandomAccessDataFile(this.file);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		this.data.close();
+		this.file.delete();
+	}
+
+	@Benchmark
+	public int sequentialRead(ReaderState state) throws IOException {
+		return read(state.nextSequentialOffset(this.readSize), state.buffer);
+	}
+
+	@Benchmark
+	public int randomRead(ReaderState state) throws IOException {
+		return read(state.nextRandomOffset(this.readSize), state.buffer);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public int randomReadConcurrently(ReaderState state) throws IOException {
+		return read(state.nextRandomOffset(this.readSize), state.buffer);
+	}
+
+	private int read(long offset, byte[] buffer) throws IOException {
+		RandomAccessData subsection = this.data.getSubsection(offset, this.readSize);
+		InputStream inputStream = subsection.getInputStream();
+		try {
+			int total = 0;
+			int read;
+			while ((read = inputStream.read(buffer, 0,
+					Math.min(buffer.length, this.readSize - total))) > 0) {
+				total += read;
+			}
+			return total;
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Per-thread read position and buffer.
+	 */
+	@State(Scope.Thread)
+	public static class ReaderState {
+
+		private final Random random = new Random();
+
+		private final byte[] buffer = new byte[8192];
+
+		private long position;
+
+		long nextSequentialOffset(int readSize) {
+			if (this.position + readSize > FILE_SIZE) {
+				this.position = 0;
+			}
+			long offset = this.position;
+			this.position += readSize;
+			return offset;
+		}
+
+		long nextRandomOffset(int readSize) {
+			return this.random.nextInt(FILE_SIZE - readSize);
+		}
+
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.loader.jar.RandomAccessJarFile;
+
+/**
+ * Benchmarks for {@link RandomAccessJarFile}: opening root and nested jars, entry lookup
+ * and reading entries from one or more threads.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RandomAccessJarFileBenchmark {
+
+	@Param({ "20", "100" })
+	public int libraries;
+
+	@Param({ "100", "1000" })
+	public int entriesPerLibrary;
+
+	@Param({ "true", "false" })
+	public boolean compressed;
+
+	private SyntheticFatJar fatJar;
+
+	private RandomAccessJarFile jarFile;
+
+	private RandomAccessJarFile[] nestedJarFiles;
+
+	private String[] resourceNames;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final byte[] buffer = new byte[4096];
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.fatJar = new SyntheticFatJar(this.libraries, this.entriesPerLibrary,
+				this.compressed);
+		this.jarFile = new RandomAccessJarFile(this.fatJar.getFile());
+		List<String> libraryNames = this.fatJar.getLibraryNames();
+		this.nestedJarFiles = new RandomAccessJarFile[libraryNames.size()];
+		for (int i = 0; i < this.nestedJarFiles.length; i++) {
+			this.nestedJarFiles[i] = this.jarFile.getNestedJarFile(this.jarFile
+					.getEntry(libraryNames.get(i)));
+		}
+		this.resourceNames = this.fatJar.getResourceNames().toArray(new String[0]);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		this.jarFile.close();
+		this.fatJar.delete();
+	}
+
+	@Benchmark
+	public RandomAccessJarFile openRootJar() throws IOException {
+		RandomAccessJarFile jarFile = new RandomAccessJarFile(this.fatJar.getFile());
+		jarFile.close();
+		return jarFile;
+	}
+
+	@Benchmark
+	public void openNestedJars(OpenedJarFiles opened) throws IOException {
+		for (String name : this.fatJar.getLibraryNames()) {
+			opened.add(this.jarFile.getNestedJarFile(this.jarFile.getEntry(name)));
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public ZipEntry entryLookup() {
+		int index = nextIndex();
+		return getNestedJarFile(index).getEntry(this.resourceNames[index]);
+	}
+
+	@Benchmark
+	public int readEntry() throws IOException {
+		return readEntry(nextIndex());
+	}
+
+	@Benchmark
+	@Threads(4)
+	public int readEntryConcurrently() throws IOException {
+		return readEntry(nextIndex());
+	}
+
+	private int readEntry(int index) throws IOException {
+		RandomAccessJarFile jarFile = getNestedJarFile(index);
+		InputStream inputStream = jarFile.getInputStream(jarFile
+				.getEntry(this.resourceNames[index]));
+		try {
+			int total = 0;
+			int read;
+			byte[] buffer = new byte[this.buffer.length];
+			while ((read = inputStream.read(buffer)) != -1) {
+				total += read;
+			}
+			return total;
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	private int nextIndex() {
+		return (this.next.getAndIncrement() & Integer.MAX_VALUE)
+				% this.resourceNames.length;
+	}
+
+	private RandomAccessJarFile getNestedJarFile(int resourceIndex) {
+		int resourcesPerLibrary = this.resourceNames.length / this.nestedJarFiles.length;
+		return this.nestedJarFiles[resourceIndex / resourcesPerLibrary];
+	}
+
+	/**
+	 * Jar files opened by a benchmark invocation that are closed once the invocation has
+	 * completed (outside of the measured time).
+	 */
+	@State(Scope.Thread)
+	public static class OpenedJarFiles {
+
+		private final List<RandomAccessJarFile> jarFiles = new ArrayList<RandomAccessJarFile>();
+
+		public void add(RandomAccessJarFile jarFile) {
+			this.jarFiles.add(jarFile);
+		}
+
+		@TearDown(Level.Invocation)
+		public void close() throws IOException {
+			for (RandomAccessJarFile jarFile : this.jarFiles) {
+				jarFile.close();
+			}
+			this.jarFiles.clear();
+		}
+
+	}
+
+}
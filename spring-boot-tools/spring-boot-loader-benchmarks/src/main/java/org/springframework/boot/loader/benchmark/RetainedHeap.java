@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.boot.loader.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.boot.loader.jar.RandomAccessJarFile;
+
+/**
+ * Reports the heap retained by open {@link RandomAccessJarFile}s. JMH measures time
+ * rather than footprint so this is a simple standalone program that compares used
+ * memory before and after opening the root jar and all nested jars. Run with
+ * {@code java -cp target/benchmarks.jar
+ * org.springframework.boot.loader.benchmark.RetainedHeap [libraries] [entries]}.
+ *
+ * @author agent
+ */
+public class RetainedHeap {
+
+	public static void main(String[] args) throws Exception {
+		int libraries = (args.length > 0 ? Integer.parseInt(args[0]) : 100);
+		int entriesPerLibrary = (args.length > 1 ? Integer.parseInt(args[1]) : 1000);
+		SyntheticFatJar fatJar = new SyntheticFatJar(libraries, entriesPerLibrary, true);
+		try {
+			long before = usedMemory();
+			RandomAccessJarFile jarFile = new RandomAccessJarFile(fatJar.getFile());
+			List<RandomAccessJarFile> nested = new ArrayList<RandomAccessJarFile>();
+			for (String name : fatJar.getLibraryNames()) {
+				nested.add(jarFile.getNestedJarFile(jarFile.getEntry(name)));
+			}
+			long after = usedMemory();
+			long entries = (long) libraries * (entriesPerLibrary + 1);
+			long retained = after - before;
+			System.out.println(String.format(Locale.ROOT,
+					"%d libraries, %d entries: %d bytes retained (%.1f bytes per entry)",
+					libraries, entries, retained, (double) retained / entries));
+			// Keep the jars reachable until after the measurement
+			System.out.println(nested.size() + " nested jars open");
+			jarFile.close();
+		}
+		finally {
+			fatJar.delete();
+		}
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			Thread.sleep(100);
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+
+}
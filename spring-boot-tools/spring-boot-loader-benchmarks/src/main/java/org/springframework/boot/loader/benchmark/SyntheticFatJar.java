@@ -0,0 +1,204 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.springframework.boot.loader.PackageIndex;
+
+/**
+ * Creates a synthetic executable jar for benchmarks. The jar contains a number of nested
+ * libraries in {@code lib/}, each containing generated (loadable) classes and an equal
+ * number of resources, along with a {@link PackageIndex} of the libraries.
+ *
+ * @author agent
+ */
+public class SyntheticFatJar {
+
+	private final File file;
+
+	private final int libraries;
+
+	private final int entriesPerLibrary;
+
+	private final List<String> libraryNames = new ArrayList<String>();
+
+	private final List<String> classNames = new ArrayList<String>();
+
+	private final List<String> resourceNames = new ArrayList<String>();
+
+	/**
+	 * Create a new {@link SyntheticFatJar} in a temporary file.
+	 * @param libraries the number of nested libraries
+	 * @param entriesPerLibrary the number of entries in each library (half classes, half
+	 * resources)
+	 * @param compressed if entries in the nested libraries should be compressed
+	 * @throws IOException
+	 */
+	public SyntheticFatJar(int libraries, int entriesPerLibrary, boolean compressed)
+			throws IOException {
+		this.file = File.createTempFile("benchmark", ".jar");
+		this.file.deleteOnExit();
+		this.libraries = libraries;
+		this.entriesPerLibrary = entriesPerLibrary;
+		write(compressed);
+	}
+
+	private void write(boolean compressed) throws IOException {
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().putValue("Start-Class", "benchmark.Main");
+		JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(
+				this.file), manifest);
+		try {
+			for (int library = 0; library < this.libraries; library++) {
+				String name = "lib/library" + library + ".jar";
+				// Nested libraries are always stored
+				writeEntry(jarOutputStream, name, createLibrary(library, compressed),
+						false);
+				this.libraryNames.add(name);
+			}
+			writeEntry(jarOutputStream, PackageIndex.LOCATION, createPackageIndex(), true);
+		}
+		finally {
+			jarOutputStream.close();
+		}
+	}
+
+	private byte[] createLibrary(int library, boolean compressed) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		JarOutputStream jarOutputStream = new JarOutputStream(bytes);
+		try {
+			String packageName = "benchmark/library" + library + "/";
+			for (int i = 0; i < this.entriesPerLibrary; i++) {
+				if (i % 2 == 0) {
+					String className = packageName + "Class" + i;
+					writeEntry(jarOutputStream, className + ".class",
+							createClass(className), compressed);
+					this.classNames.add(className.replace('/', '.'));
+				}
+				else {
+					String resourceName = packageName + "resource" + i + ".txt";
+					writeEntry(jarOutputStream, resourceName,
+							createResource(resourceName), compressed);
+					this.resourceNames.add(resourceName);
+				}
+			}
+		}
+		finally {
+			jarOutputStream.close();
+		}
+		return bytes.toByteArray();
+	}
+
+	private byte[] createPackageIndex() throws IOException {
+		StringBuilder content = new StringBuilder();
+		for (int library = 0; library < this.libraries; library++) {
+			content.append(this.libraryNames.get(library)).append("\n");
+			content.append("benchmark/\n");
+			content.append("benchmark/library").append(library).append("/\n\n");
+		}
+		return content.toString().getBytes("UTF-8");
+	}
+
+	private void writeEntry(JarOutputStream jarOutputStream, String name,
+			byte[] content, boolean compressed) throws IOException {
+		JarEntry entry = new JarEntry(name);
+		if (!compressed) {
+			CRC32 crc = new CRC32();
+			crc.update(content);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(content.length);
+			entry.setCompressedSize(content.length);
+			entry.setCrc(crc.getValue());
+		}
+		jarOutputStream.putNextEntry(entry);
+		jarOutputStream.write(content);
+		jarOutputStream.closeEntry();
+	}
+
+	private byte[] createResource(String name) {
+		StringBuilder content = new StringBuilder();
+		while (content.length() < 2048) {
+			content.append("Content of ").append(name).append("\n");
+		}
+		return content.toString().getBytes();
+	}
+
+	/**
+	 * Create the bytes of an empty public class that extends {@code Object}.
+	 */
+	private byte[] createClass(String internalName) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0); // minor version
+		out.writeShort(50); // Java 6
+		out.writeShort(5); // constant pool count
+		out.writeByte(7); // #1 Class #2
+		out.writeShort(2);
+		out.writeByte(1); // #2 Utf8
+		out.writeUTF(internalName);
+		out.writeByte(7); // #3 Class #4
+		out.writeShort(4);
+		out.writeByte(1); // #4 Utf8
+		out.writeUTF("java/lang/Object");
+		out.writeShort(0x0021); // public super
+		out.writeShort(1); // this class
+		out.writeShort(3); // super class
+		out.writeShort(0); // interfaces
+		out.writeShort(0); // fields
+		out.writeShort(0); // methods
+		out.writeShort(0); // attributes
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	public List<String> getLibraryNames() {
+		return Collections.unmodifiableList(this.libraryNames);
+	}
+
+	public List<String> getClassNames() {
+		return Collections.unmodifiableList(this.classNames);
+	}
+
+	public List<String> getResourceNames() {
+		return Collections.unmodifiableList(this.resourceNames);
+	}
+
+	public void delete() {
+		this.file.delete();
+	}
+
+}
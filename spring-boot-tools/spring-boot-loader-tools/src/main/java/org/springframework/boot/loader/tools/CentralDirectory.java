@@ -0,0 +1,274 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.tools;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * The central directory of a zip file, read directly so that the raw (compressed) data
+ * of each entry can be located and copied without being inflated.
+ *
+ * @author agent
+ */
+class CentralDirectory {
+
+	private static final int END_RECORD_SIGNATURE = 0x06054b50;
+
+	private static final int END_RECORD_SIZE = 22;
+
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+
+	private static final int ZIP64_END_RECORD_SIGNATURE = 0x06064b50;
+
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+	private static final int CENTRAL_HEADER_SIZE = 46;
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+	private final FileChannel channel;
+
+	private final Map<String, Record> records;
+
+	private CentralDirectory(FileChannel channel, Map<String, Record> records) {
+		this.channel = channel;
+		this.records = records;
+	}
+
+	/**
+	 * Return the {@link Record} for the named entry.
+	 * @param name the entry name
+	 * @return the record or {@code null}
+	 */
+	public Record get(String name) {
+		return this.records.get(name);
+	}
+
+	/**
+	 * Return the position in the file of the raw data for the specified record.
+	 * @param record the record
+	 * @return the position of the data
+	 * @throws IOException
+	 */
+	public long getDataOffset(Record record) throws IOException {
+		ByteBuffer header = read(this.channel, record.getLocalHeaderOffset(),
+				LOCAL_HEADER_SIZE);
+		if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Invalid local header for " + record.getName());
+		}
+		return record.getLocalHeaderOffset() + LOCAL_HEADER_SIZE
+				+ (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+	}
+
+	/**
+	 * Read the central directory of the zip file accessed by the given channel.
+	 * @param channel the file channel
+	 * @return the central directory
+	 * @throws IOException if the central directory cannot be read
+	 */
+	public static CentralDirectory read(FileChannel channel) throws IOException {
+		long size = channel.size();
+		int tailSize = (int) Math.min(size, END_RECORD_SIZE + MAX_COMMENT_SIZE);
+		ByteBuffer tail = read(channel, size - tailSize, tailSize);
+		int endRecord = tailSize - END_RECORD_SIZE;
+		while (endRecord >= 0 && !isEndRecord(tail, endRecord, tailSize)) {
+			endRecord--;
+		}
+		if (endRecord < 0) {
+			throw new ZipException("Unable to find end of central directory record");
+		}
+		long endRecordOffset = size - tailSize + endRecord;
+		long count = tail.getShort(endRecord + 10) & 0xFFFF;
+		long length = tail.getInt(endRecord + 12) & ZIP64_MAGIC;
+		long offset = tail.getInt(endRecord + 16) & ZIP64_MAGIC;
+		long prefix = 0;
+		ByteBuffer locator = (endRecordOffset < ZIP64_LOCATOR_SIZE ? null : read(
+				channel, endRecordOffset - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE));
+		if (locator != null && locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+			ByteBuffer zip64EndRecord = read(channel, locator.getLong(8), 56);
+			if (zip64EndRecord.getInt(0) != ZIP64_END_RECORD_SIGNATURE) {
+				throw new ZipException("Invalid zip64 end of central directory record");
+			}
+			count = zip64EndRecord.getLong(32);
+			length = zip64EndRecord.getLong(40);
+			offset = zip64EndRecord.getLong(48);
+		}
+		else {
+			// Allow for data (such as a launch script) before the zip content
+			prefix = endRecordOffset - length - offset;
+		}
+		if (length > Integer.MAX_VALUE || count > Integer.MAX_VALUE) {
+			throw new ZipException("Central directory too large");
+		}
+		ByteBuffer centralDirectory = read(channel, offset + prefix, (int) length);
+		Map<String, Record> records = new HashMap<String, Record>();
+		int position = 0;
+		for (long i = 0; i < count; i++) {
+			Record record = new Record(centralDirectory, position, prefix);
+			records.put(record.getName(), record);
+			position = record.getEnd();
+		}
+		return new CentralDirectory(channel, records);
+	}
+
+	private static boolean isEndRecord(ByteBuffer tail, int position, int tailSize) {
+		int commentLength = tail.getShort(position + 20) & 0xFFFF;
+		return tail.getInt(position) == END_RECORD_SIGNATURE
+				&& position + END_RECORD_SIZE + commentLength == tailSize;
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) == -1) {
+				throw new ZipException("Unexpected end of zip data");
+			}
+		}
+		buffer.flip();
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	/**
+	 * A single central directory record.
+	 */
+	public static class Record {
+
+		private final String name;
+
+		private final int flags;
+
+		private final int method;
+
+		private final long crc;
+
+		private long compressedSize;
+
+		private long size;
+
+		private long localHeaderOffset;
+
+		private final int end;
+
+		Record(ByteBuffer buffer, int position, long prefix) throws IOException {
+			if (buffer.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("Invalid central directory header");
+			}
+			this.flags = buffer.getShort(position + 8) & 0xFFFF;
+			this.method = buffer.getShort(position + 10) & 0xFFFF;
+			this.crc = buffer.getInt(position + 16) & ZIP64_MAGIC;
+			this.compressedSize = buffer.getInt(position + 20) & ZIP64_MAGIC;
+			this.size = buffer.getInt(position + 24) & ZIP64_MAGIC;
+			int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+			int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+			int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+			this.localHeaderOffset = buffer.getInt(position + 42) & ZIP64_MAGIC;
+			byte[] name = new byte[nameLength];
+			for (int i = 0; i < nameLength; i++) {
+				name[i] = buffer.get(position + CENTRAL_HEADER_SIZE + i);
+			}
+			this.name = new String(name, "UTF-8");
+			readZip64Extra(buffer, position + CENTRAL_HEADER_SIZE + nameLength,
+					extraLength);
+			this.localHeaderOffset += prefix;
+			this.end = position + CENTRAL_HEADER_SIZE + nameLength + extraLength
+					+ commentLength;
+		}
+
+		private void readZip64Extra(ByteBuffer buffer, int position, int length) {
+			int end = position + length;
+			while (position + 4 <= end) {
+				int id = buffer.getShort(position) & 0xFFFF;
+				int size = buffer.getShort(position + 2) & 0xFFFF;
+				if (id == ZIP64_EXTRA_ID) {
+					int value = position + 4;
+					if (this.size == ZIP64_MAGIC) {
+						this.size = buffer.getLong(value);
+						value += 8;
+					}
+					if (this.compressedSize == ZIP64_MAGIC) {
+						this.compressedSize = buffer.getLong(value);
+						value += 8;
+					}
+					if (this.localHeaderOffset == ZIP64_MAGIC) {
+						this.localHeaderOffset = buffer.getLong(value);
+					}
+					return;
+				}
+				position += 4 + size;
+			}
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Returns {@code true} if the raw data of the entry can be copied directly.
+		 * @return if the entry can be copied
+		 */
+		public boolean isRawCopySupported() {
+			boolean encrypted = (this.flags & 1) != 0;
+			return !encrypted
+					&& (this.method == ZipEntry.STORED || this.method == ZipEntry.DEFLATED);
+		}
+
+		public int getMethod() {
+			return this.method;
+		}
+
+		public long getCrc() {
+			return this.crc;
+		}
+
+		public long getCompressedSize() {
+			return this.compressedSize;
+		}
+
+		public long getSize() {
+			return this.size;
+		}
+
+		public long getLocalHeaderOffset() {
+			return this.localHeaderOffset;
+		}
+
+		int getEnd() {
+			return this.end;
+		}
+
+	}
+
+}
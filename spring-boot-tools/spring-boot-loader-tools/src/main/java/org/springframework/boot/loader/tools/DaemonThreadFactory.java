@@ -0,0 +1,49 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.tools;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ThreadFactory} that creates named daemon threads.
+ *
+ * @author agent
+ */
+class DaemonThreadFactory implements ThreadFactory {
+
+	private final String prefix;
+
+	private final AtomicInteger threadNumber = new AtomicInteger();
+
+	/**
+	 * Create a new {@link DaemonThreadFactory} instance.
+	 * @param prefix the prefix used for thread names
+	 */
+	public DaemonThreadFactory(String prefix) {
+		this.prefix = prefix;
+	}
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, this.prefix
+				+ this.threadNumber.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+
+}
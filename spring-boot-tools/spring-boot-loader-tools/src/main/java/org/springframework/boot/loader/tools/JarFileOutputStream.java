@@ -0,0 +1,492 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * An {@link OutputStream} that writes a jar file. Unlike
+ * {@link java.util.jar.JarOutputStream} this stream writes directly to a {@link File}
+ * which allows {@link #writeRawEntry raw entries} to be transferred from another zip
+ * file without being inflated and recompressed. Since the file is seekable the CRC and
+ * sizes of streamed entries are written back into the local header once the entry is
+ * closed, so no data descriptors are written and {@link ZipEntry#STORED stored} entries
+ * need not be set up in advance.
+ *
+ * @author agent
+ */
+class JarFileOutputStream extends OutputStream {
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+	private static final int ZIP64_END_RECORD_SIGNATURE = 0x06064b50;
+
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	private static final int END_RECORD_SIGNATURE = 0x06054b50;
+
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+
+	private static final int JAR_MAGIC = 0xCAFE;
+
+	private static final int UTF8_FLAG = 0x800;
+
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	private final FileOutputStream fileOutputStream;
+
+	private final FileChannel channel;
+
+	private final OutputStream outputStream;
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+	private final CRC32 crc = new CRC32();
+
+	private final List<Header> headers = new ArrayList<Header>();
+
+	private long position;
+
+	private Header current;
+
+	private long currentDataOffset;
+
+	private boolean closed;
+
+	/**
+	 * Create a new {@link JarFileOutputStream} instance.
+	 * @param file the file to write
+	 * @throws IOException
+	 */
+	public JarFileOutputStream(File file) throws IOException {
+		this.fileOutputStream = new FileOutputStream(file);
+		this.channel = this.fileOutputStream.getChannel();
+		this.outputStream = new BufferedOutputStream(this.fileOutputStream, BUFFER_SIZE);
+	}
+
+	/**
+	 * Begin writing a new entry. Data written to this stream until
+	 * {@link #closeEntry()} is called is compressed according to the method of the
+	 * entry.
+	 * @param entry the entry to write
+	 * @throws IOException
+	 */
+	public void putNextEntry(ZipEntry entry) throws IOException {
+		ensureOpen();
+		closeEntry();
+		int method = (entry.getMethod() == -1 ? ZipEntry.DEFLATED : entry.getMethod());
+		this.current = new Header(entry, method, this.headers.isEmpty());
+		writeLocalHeader(this.current);
+		this.currentDataOffset = this.position;
+		this.crc.reset();
+		this.deflater.reset();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		if (this.current == null) {
+			throw new ZipException("No current entry");
+		}
+		if (len == 0) {
+			return;
+		}
+		this.crc.update(b, off, len);
+		this.current.size += len;
+		if (this.current.method == ZipEntry.STORED) {
+			writeBytes(b, off, len);
+			return;
+		}
+		this.deflater.setInput(b, off, len);
+		while (!this.deflater.needsInput()) {
+			deflate();
+		}
+	}
+
+	private void deflate() throws IOException {
+		int length = this.deflater.deflate(this.buffer, 0, this.buffer.length);
+		if (length > 0) {
+			writeBytes(this.buffer, 0, length);
+		}
+	}
+
+	/**
+	 * Finish writing the current entry (if any) and update its local header with the
+	 * CRC and sizes of the data that was written.
+	 * @throws IOException
+	 */
+	public void closeEntry() throws IOException {
+		ensureOpen();
+		Header header = this.current;
+		if (header == null) {
+			return;
+		}
+		if (header.method == ZipEntry.DEFLATED) {
+			this.deflater.finish();
+			while (!this.deflater.finished()) {
+				deflate();
+			}
+		}
+		header.crc = this.crc.getValue();
+		header.compressedSize = this.position - this.currentDataOffset;
+		if (header.size >= ZIP64_MAGIC || header.compressedSize >= ZIP64_MAGIC) {
+			throw new ZipException("Entry " + header.entryName + " is too large");
+		}
+		this.outputStream.flush();
+		ByteBuffer update = allocate(12);
+		update.putInt((int) header.crc);
+		update.putInt((int) header.compressedSize);
+		update.putInt((int) header.size);
+		update.flip();
+		long updatePosition = header.offset + 14;
+		while (update.hasRemaining()) {
+			updatePosition += this.channel.write(update, updatePosition);
+		}
+		this.current = null;
+	}
+
+	/**
+	 * Write an entry by transferring its already compressed data from another file. The
+	 * CRC, sizes and method are taken from the specified values rather than from the
+	 * {@code entry} and the data is written without being inspected.
+	 * @param entry the entry (used for the name, time, extra data and comment)
+	 * @param method the compression method of the data
+	 * @param crc the CRC of the uncompressed data
+	 * @param compressedSize the size of the data to transfer
+	 * @param size the uncompressed size
+	 * @param source the source file channel
+	 * @param dataOffset the position of the data in the source
+	 * @throws IOException
+	 */
+	public void writeRawEntry(ZipEntry entry, int method, long crc, long compressedSize,
+			long size, FileChannel source, long dataOffset) throws IOException {
+		Header header = writeRawHeader(entry, method, crc, compressedSize, size);
+		this.outputStream.flush();
+		long transferred = 0;
+		while (transferred < compressedSize) {
+			long count = source.transferTo(dataOffset + transferred, compressedSize
+					- transferred, this.channel);
+			if (count <= 0) {
+				throw new ZipException("Unexpected end of data for " + header.entryName);
+			}
+			transferred += count;
+		}
+		this.position += compressedSize;
+	}
+
+	/**
+	 * Write an entry from data that has already been compressed.
+	 * @param entry the entry (used for the name, time, extra data and comment)
+	 * @param method the compression method of the data
+	 * @param crc the CRC of the uncompressed data
+	 * @param size the uncompressed size
+	 * @param data the compressed data
+	 * @param length the length of the compressed data
+	 * @throws IOException
+	 * @see #writeRawEntry(ZipEntry, int, long, long, long, FileChannel, long)
+	 */
+	public void writeRawEntry(ZipEntry entry, int method, long crc, long size,
+			byte[] data, int length) throws IOException {
+		writeRawHeader(entry, method, crc, length, size);
+		writeBytes(data, 0, length);
+	}
+
+	private Header writeRawHeader(ZipEntry entry, int method, long crc,
+			long compressedSize, long size) throws IOException {
+		ensureOpen();
+		closeEntry();
+		Header header = new Header(entry, method, this.headers.isEmpty());
+		header.crc = crc;
+		header.compressedSize = compressedSize;
+		header.size = size;
+		writeLocalHeader(header);
+		return header;
+	}
+
+	private void writeLocalHeader(Header header) throws IOException {
+		header.offset = this.position;
+		this.headers.add(header);
+		boolean zip64 = header.isZip64Size();
+		byte[] extra = (zip64 ? addZip64Extra(header.extra, header.size,
+				header.compressedSize, -1) : header.extra);
+		ByteBuffer buffer = allocate(30 + header.name.length + extra.length);
+		buffer.putInt(LOCAL_HEADER_SIGNATURE);
+		buffer.putShort((short) (zip64 ? 45 : 20));
+		buffer.putShort((short) UTF8_FLAG);
+		buffer.putShort((short) header.method);
+		buffer.putInt((int) header.time);
+		buffer.putInt((int) header.crc);
+		buffer.putInt((int) (zip64 ? ZIP64_MAGIC : header.compressedSize));
+		buffer.putInt((int) (zip64 ? ZIP64_MAGIC : header.size));
+		buffer.putShort((short) header.name.length);
+		buffer.putShort((short) extra.length);
+		buffer.put(header.name);
+		buffer.put(extra);
+		writeBytes(buffer.array(), 0, buffer.position());
+	}
+
+	private void writeCentralDirectory() throws IOException {
+		long offset = this.position;
+		for (Header header : this.headers) {
+			writeCentralHeader(header);
+		}
+		long length = this.position - offset;
+		int count = this.headers.size();
+		if (count >= ZIP64_MAGIC_COUNT || offset >= ZIP64_MAGIC || length >= ZIP64_MAGIC) {
+			long zip64EndRecordOffset = this.position;
+			ByteBuffer buffer = allocate(56 + 20);
+			buffer.putInt(ZIP64_END_RECORD_SIGNATURE);
+			buffer.putLong(44);
+			buffer.putShort((short) 45);
+			buffer.putShort((short) 45);
+			buffer.putInt(0);
+			buffer.putInt(0);
+			buffer.putLong(count);
+			buffer.putLong(count);
+			buffer.putLong(length);
+			buffer.putLong(offset);
+			buffer.putInt(ZIP64_LOCATOR_SIGNATURE);
+			buffer.putInt(0);
+			buffer.putLong(zip64EndRecordOffset);
+			buffer.putInt(1);
+			writeBytes(buffer.array(), 0, buffer.position());
+		}
+		ByteBuffer buffer = allocate(22);
+		buffer.putInt(END_RECORD_SIGNATURE);
+		buffer.putShort((short) 0);
+		buffer.putShort((short) 0);
+		buffer.putShort((short) Math.min(count, ZIP64_MAGIC_COUNT));
+		buffer.putShort((short) Math.min(count, ZIP64_MAGIC_COUNT));
+		buffer.putInt((int) Math.min(length, ZIP64_MAGIC));
+		buffer.putInt((int) Math.min(offset, ZIP64_MAGIC));
+		buffer.putShort((short) 0);
+		writeBytes(buffer.array(), 0, buffer.position());
+	}
+
+	private void writeCentralHeader(Header header) throws IOException {
+		boolean zip64Size = header.isZip64Size();
+		boolean zip64Offset = header.offset >= ZIP64_MAGIC;
+		byte[] extra = header.extra;
+		if (zip64Size || zip64Offset) {
+			extra = addZip64Extra(extra, (zip64Size ? header.size : -1),
+					(zip64Size ? header.compressedSize : -1), (zip64Offset ? header.offset
+							: -1));
+		}
+		int version = (zip64Size || zip64Offset ? 45 : 20);
+		ByteBuffer buffer = allocate(46 + header.name.length + extra.length
+				+ header.comment.length);
+		buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+		buffer.putShort((short) version);
+		buffer.putShort((short) version);
+		buffer.putShort((short) UTF8_FLAG);
+		buffer.putShort((short) header.method);
+		buffer.putInt((int) header.time);
+		buffer.putInt((int) header.crc);
+		buffer.putInt((int) (zip64Size ? ZIP64_MAGIC : header.compressedSize));
+		buffer.putInt((int) (zip64Size ? ZIP64_MAGIC : header.size));
+		buffer.putShort((short) header.name.length);
+		buffer.putShort((short) extra.length);
+		buffer.putShort((short) header.comment.length);
+		buffer.putShort((short) 0);
+		buffer.putShort((short) 0);
+		buffer.putInt(0);
+		buffer.putInt((int) (zip64Offset ? ZIP64_MAGIC : header.offset));
+		buffer.put(header.name);
+		buffer.put(extra);
+		buffer.put(header.comment);
+		writeBytes(buffer.array(), 0, buffer.position());
+	}
+
+	private byte[] addZip64Extra(byte[] extra, long size, long compressedSize,
+			long offset) {
+		int length = (size == -1 ? 0 : 8) + (compressedSize == -1 ? 0 : 8)
+				+ (offset == -1 ? 0 : 8);
+		ByteBuffer buffer = allocate(4 + length + extra.length);
+		buffer.putShort((short) ZIP64_EXTRA_ID);
+		buffer.putShort((short) length);
+		if (size != -1) {
+			buffer.putLong(size);
+		}
+		if (compressedSize != -1) {
+			buffer.putLong(compressedSize);
+		}
+		if (offset != -1) {
+			buffer.putLong(offset);
+		}
+		buffer.put(extra);
+		return buffer.array();
+	}
+
+	private void writeBytes(byte[] b, int off, int len) throws IOException {
+		this.outputStream.write(b, off, len);
+		this.position += len;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		this.outputStream.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		try {
+			closeEntry();
+			writeCentralDirectory();
+			this.outputStream.flush();
+		}
+		finally {
+			this.closed = true;
+			this.deflater.end();
+			this.fileOutputStream.close();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	private static ByteBuffer allocate(int size) {
+		return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * The details of a written entry, used to create the local header and the central
+	 * directory.
+	 */
+	private static class Header {
+
+		private final String entryName;
+
+		private final byte[] name;
+
+		private final int method;
+
+		private final long time;
+
+		private final byte[] extra;
+
+		private final byte[] comment;
+
+		private long crc;
+
+		private long compressedSize;
+
+		private long size;
+
+		private long offset;
+
+		public Header(ZipEntry entry, int method, boolean first) throws IOException {
+			this.entryName = entry.getName();
+			this.name = entry.getName().getBytes("UTF-8");
+			this.method = method;
+			this.time = toDosTime(entry.getTime() == -1 ? System.currentTimeMillis()
+					: entry.getTime());
+			this.extra = getExtra(entry.getExtra(), first);
+			this.comment = (entry.getComment() == null ? new byte[0] : entry
+					.getComment().getBytes("UTF-8"));
+			if (this.name.length > 0xFFFF || this.extra.length > 0xFFFF
+					|| this.comment.length > 0xFFFF) {
+				throw new ZipException("Entry " + entry.getName() + " is too large");
+			}
+		}
+
+		public boolean isZip64Size() {
+			return this.size >= ZIP64_MAGIC || this.compressedSize >= ZIP64_MAGIC;
+		}
+
+		/**
+		 * Return the extra data to write, removing any zip64 field (which is written
+		 * when needed) and adding the jar magic to the first entry as
+		 * {@link java.util.jar.JarOutputStream} does.
+		 */
+		private static byte[] getExtra(byte[] extra, boolean first) {
+			ByteBuffer result = allocate((extra == null ? 0 : extra.length) + 4);
+			if (first) {
+				result.putShort((short) JAR_MAGIC);
+				result.putShort((short) 0);
+			}
+			if (extra != null) {
+				ByteBuffer source = ByteBuffer.wrap(extra).order(ByteOrder.LITTLE_ENDIAN);
+				while (source.remaining() >= 4) {
+					int id = source.getShort() & 0xFFFF;
+					int size = source.getShort() & 0xFFFF;
+					if (size > source.remaining()) {
+						break;
+					}
+					if (id != ZIP64_EXTRA_ID && (id != JAR_MAGIC || !first)) {
+						result.putShort((short) id);
+						result.putShort((short) size);
+						result.put(extra, source.position(), size);
+					}
+					source.position(source.position() + size);
+				}
+			}
+			byte[] bytes = new byte[result.position()];
+			System.arraycopy(result.array(), 0, bytes, 0, bytes.length);
+			return bytes;
+		}
+
+		private static long toDosTime(long time) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis(time);
+			int year = calendar.get(Calendar.YEAR);
+			if (year < 1980) {
+				return (1 << 21) | (1 << 16);
+			}
+			return ((year - 1980) << 25) | ((calendar.get(Calendar.MONTH) + 1) << 21)
+					| (calendar.get(Calendar.DAY_OF_MONTH) << 16)
+					| (calendar.get(Calendar.HOUR_OF_DAY) << 11)
+					| (calendar.get(Calendar.MINUTE) << 5)
+					| (calendar.get(Calendar.SECOND) >> 1);
+		}
+
+	}
+
+}
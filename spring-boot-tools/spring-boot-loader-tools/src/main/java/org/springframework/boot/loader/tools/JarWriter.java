@@ -18,26 +18,42 @@ package org.springframework.boot.loader.tools;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
 import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 
 /**
  * Writes JAR content, ensuring valid directory entries are always create and duplicate
@@ -49,12 +65,24 @@ class JarWriter {
 
 	private static final String NESTED_LOADER_JAR = "META-INF/loader/spring-boot-loader.jar";
 
+	static final String PACKAGE_INDEX = "META-INF/package.idx";
+
 	private static final int BUFFER_SIZE = 4096;
 
-	private final JarOutputStream jarOutput;
+	private final JarFileOutputStream jarOutput;
 
 	private final Set<String> writtenEntries = new HashSet<String>();
 
+	private final Map<String, Set<String>> packageIndex = new LinkedHashMap<String, Set<String>>();
+
+	private final ExecutorService executor;
+
+	private final int maxPendingEntries;
+
+	private final Queue<Future<DeflatedEntry>> pendingEntries;
+
+	private PreviousJarFile previous;
+
 	/**
 	 * Create a new {@link JarWriter} instance.
 	 * @param file the file to write
@@ -62,7 +90,24 @@ class JarWriter {
 	 * @throws FileNotFoundException
 	 */
 	public JarWriter(File file) throws FileNotFoundException, IOException {
-		this.jarOutput = new JarOutputStream(new FileOutputStream(file));
+		this(file, 1);
+	}
+
+	/**
+	 * Create a new {@link JarWriter} instance. When more than one thread is specified
+	 * entries that need to be compressed are deflated concurrently and written in order
+	 * as they complete.
+	 * @param file the file to write
+	 * @param threads the number of threads used to compress entries
+	 * @throws IOException
+	 * @throws FileNotFoundException
+	 */
+	public JarWriter(File file, int threads) throws FileNotFoundException, IOException {
+		this.jarOutput = new JarFileOutputStream(file);
+		this.executor = (threads > 1 ? Executors.newFixedThreadPool(threads,
+				new DaemonThreadFactory("jar-writer-")) : null);
+		this.maxPendingEntries = threads * 4;
+		this.pendingEntries = new LinkedList<Future<DeflatedEntry>>();
 	}
 
 	/**
@@ -81,29 +126,87 @@ class JarWriter {
 	}
 
 	/**
-	 * Write all entries from the specified jar file.
+	 * Write all entries from the specified jar file. Where possible entries are
+	 * transferred in their raw (compressed) form using the CRC and sizes recorded in the
+	 * source central directory so that they are not inflated and recompressed.
 	 * @param jarFile the source jar file
 	 * @throws IOException
 	 */
 	public void writeEntries(JarFile jarFile) throws IOException {
-		Enumeration<JarEntry> entries = jarFile.entries();
-		while (entries.hasMoreElements()) {
-			JarEntry entry = entries.nextElement();
-			ZipHeaderPeekInputStream inputStream = new ZipHeaderPeekInputStream(
-					jarFile.getInputStream(entry));
-			try {
-				if (inputStream.hasZipHeader() && entry.getMethod() != ZipEntry.STORED) {
-					new CrcAndSize(inputStream).setupStoredEntry(entry);
-					inputStream.close();
-					inputStream = new ZipHeaderPeekInputStream(
-							jarFile.getInputStream(entry));
-				}
-				EntryWriter entryWriter = new InputStreamEntryWriter(inputStream, true);
-				writeEntry(entry, entryWriter);
+		FileInputStream source = new FileInputStream(jarFile.getName());
+		try {
+			FileChannel channel = source.getChannel();
+			CentralDirectory centralDirectory = readCentralDirectory(channel);
+			Enumeration<JarEntry> entries = jarFile.entries();
+			while (entries.hasMoreElements()) {
+				writeEntry(jarFile, entries.nextElement(), centralDirectory, channel);
 			}
-			finally {
-				inputStream.close();
+		}
+		finally {
+			source.close();
+		}
+	}
+
+	private CentralDirectory readCentralDirectory(FileChannel channel) {
+		try {
+			return CentralDirectory.read(channel);
+		}
+		catch (IOException ex) {
+			// Fall back to inflating and recompressing every entry
+			return null;
+		}
+	}
+
+	private void writeEntry(JarFile jarFile, JarEntry entry,
+			CentralDirectory centralDirectory, FileChannel channel) throws IOException {
+		CentralDirectory.Record record = (centralDirectory == null ? null
+				: centralDirectory.get(entry.getName()));
+		boolean raw = (record != null && record.isRawCopySupported());
+		if (raw && record.getMethod() == ZipEntry.STORED) {
+			writeRawEntry(entry, record, centralDirectory, channel);
+			return;
+		}
+		ZipHeaderPeekInputStream inputStream = new ZipHeaderPeekInputStream(
+				jarFile.getInputStream(entry));
+		try {
+			if (inputStream.hasZipHeader() && entry.getMethod() != ZipEntry.STORED) {
+				// Nested zips are stored so that the launcher can read them directly
+				entry.setMethod(ZipEntry.STORED);
+				writeEntry(entry, new InputStreamEntryWriter(inputStream, true));
+			}
+			else if (raw) {
+				writeRawEntry(entry, record, centralDirectory, channel);
 			}
+			else {
+				writeEntry(entry, new InputStreamEntryWriter(inputStream, true));
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	private void writeRawEntry(JarEntry entry, CentralDirectory.Record record,
+			CentralDirectory centralDirectory, FileChannel channel) throws IOException {
+		if (addEntry(entry)) {
+			writePendingEntries(0);
+			this.jarOutput.writeRawEntry(entry, record.getMethod(), record.getCrc(),
+					record.getCompressedSize(), record.getSize(), channel,
+					centralDirectory.getDataOffset(record));
+		}
+	}
+
+	/**
+	 * Set a previously written jar file from which unchanged nested libraries can be
+	 * copied. If the file cannot be read all libraries are written in full.
+	 * @param file the previous jar file
+	 */
+	public void setPrevious(File file) {
+		try {
+			this.previous = new PreviousJarFile(file);
+		}
+		catch (IOException ex) {
+			// Not a usable jar, libraries will be written in full
 		}
 	}
 
@@ -115,8 +218,94 @@ class JarWriter {
 	 */
 	public void writeNestedLibrary(String destination, File file) throws IOException {
 		JarEntry entry = new JarEntry(destination + file.getName());
-		new CrcAndSize(file).setupStoredEntry(entry);
+		entry.setTime(file.lastModified());
+		entry.setMethod(ZipEntry.STORED);
+		if (this.previous != null && writePreviousLibrary(entry, file)) {
+			return;
+		}
 		writeEntry(entry, new InputStreamEntryWriter(new FileInputStream(file), true));
+		addToPackageIndex(entry.getName(), file);
+	}
+
+	private boolean writePreviousLibrary(JarEntry entry, File file) throws IOException {
+		String name = entry.getName();
+		ZipEntry previousEntry = this.previous.getUnchangedLibrary(name, file);
+		if (previousEntry == null) {
+			return false;
+		}
+		if (addEntry(entry)) {
+			writePendingEntries(0);
+			this.jarOutput.writeRawEntry(entry, ZipEntry.STORED, previousEntry.getCrc(),
+					previousEntry.getSize(), previousEntry.getSize(),
+					this.previous.getChannel(), this.previous.getDataOffset(name));
+		}
+		Set<String> directories = this.previous.getPackageIndex(name);
+		if (directories != null) {
+			this.packageIndex.put(name, directories);
+		}
+		else {
+			addToPackageIndex(name, file);
+		}
+		return true;
+	}
+
+	private void addToPackageIndex(String name, File file) throws IOException {
+		ZipFile zipFile;
+		try {
+			zipFile = new ZipFile(file);
+		}
+		catch (ZipException ex) {
+			// Not an archive, the launcher will search it for every lookup
+			return;
+		}
+		try {
+			Set<String> directories = new TreeSet<String>();
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				String entryName = entries.nextElement().getName();
+				int slash = entryName.indexOf('/');
+				if (slash == -1) {
+					directories.add("/");
+				}
+				// Ancestors are indexed so that directory lookups (for example when
+				// scanning a package) find archives that only contain sub-packages
+				while (slash != -1) {
+					directories.add(entryName.substring(0, slash + 1));
+					slash = entryName.indexOf('/', slash + 1);
+				}
+			}
+			this.packageIndex.put(name, directories);
+		}
+		finally {
+			zipFile.close();
+		}
+	}
+
+	/**
+	 * Write an index of the packages contained in each nested library. The index is
+	 * used by the launcher to find classes without searching every library.
+	 * @throws IOException
+	 */
+	public void writePackageIndex() throws IOException {
+		if (this.packageIndex.isEmpty()) {
+			return;
+		}
+		JarEntry entry = new JarEntry(PACKAGE_INDEX);
+		writeEntry(entry, new EntryWriter() {
+			@Override
+			public void write(OutputStream outputStream) throws IOException {
+				Writer writer = new OutputStreamWriter(outputStream, "UTF-8");
+				for (Map.Entry<String, Set<String>> library : JarWriter.this.packageIndex
+						.entrySet()) {
+					writer.write(library.getKey() + "\n");
+					for (String directory : library.getValue()) {
+						writer.write(directory + "\n");
+					}
+					writer.write("\n");
+				}
+				writer.flush();
+			}
+		});
 	}
 
 	/**
@@ -141,7 +330,22 @@ class JarWriter {
 	 * @throws IOException
 	 */
 	public void close() throws IOException {
-		this.jarOutput.close();
+		try {
+			try {
+				writePendingEntries(0);
+			}
+			finally {
+				this.jarOutput.close();
+			}
+		}
+		finally {
+			if (this.executor != null) {
+				this.executor.shutdownNow();
+			}
+			if (this.previous != null) {
+				this.previous.close();
+			}
+		}
 	}
 
 	/**
@@ -152,6 +356,84 @@ class JarWriter {
 	 * @throws IOException
 	 */
 	private void writeEntry(JarEntry entry, EntryWriter entryWriter) throws IOException {
+		if (addEntry(entry)) {
+			if (this.executor != null && entry.getMethod() != ZipEntry.STORED) {
+				writeDeflatedEntry(entry, entryWriter);
+				return;
+			}
+			writePendingEntries(0);
+			this.jarOutput.putNextEntry(entry);
+			if (entryWriter != null) {
+				entryWriter.write(this.jarOutput);
+			}
+			this.jarOutput.closeEntry();
+		}
+	}
+
+	/**
+	 * Write an entry that needs to be deflated using the compression threads. The
+	 * content is read on the calling thread, since the source may be a stream, and the
+	 * compressed entry is written once all earlier entries have been written.
+	 * @param entry the entry to write
+	 * @param entryWriter the entry writer or {@code null} if there is no content
+	 * @throws IOException
+	 */
+	private void writeDeflatedEntry(final JarEntry entry, EntryWriter entryWriter)
+			throws IOException {
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		if (entryWriter != null) {
+			entryWriter.write(content);
+		}
+		writePendingEntries(this.maxPendingEntries - 1);
+		this.pendingEntries.add(this.executor.submit(new Callable<DeflatedEntry>() {
+			@Override
+			public DeflatedEntry call() throws Exception {
+				return new DeflatedEntry(entry, content.toByteArray());
+			}
+		}));
+	}
+
+	/**
+	 * Write completed entries, in order, until no more than the specified number of
+	 * entries remain pending.
+	 * @param maxRemaining the maximum number of pending entries that may remain
+	 * @throws IOException
+	 */
+	private void writePendingEntries(int maxRemaining) throws IOException {
+		while (this.pendingEntries.size() > maxRemaining) {
+			DeflatedEntry deflated = getDeflatedEntry(this.pendingEntries.poll());
+			this.jarOutput.writeRawEntry(deflated.getEntry(), ZipEntry.DEFLATED,
+					deflated.getCrc(), deflated.getSize(), deflated.getData(),
+					deflated.getLength());
+		}
+	}
+
+	private DeflatedEntry getDeflatedEntry(Future<DeflatedEntry> future)
+			throws IOException {
+		try {
+			return future.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing entries");
+		}
+		catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			throw new IllegalStateException(ex.getCause());
+		}
+	}
+
+	/**
+	 * Write any missing parent directories of the entry and record that the entry is
+	 * written.
+	 * @param entry the entry
+	 * @return {@code true} if the entry should be written or {@code false} if it is a
+	 * duplicate
+	 * @throws IOException
+	 */
+	private boolean addEntry(JarEntry entry) throws IOException {
 		String parent = entry.getName();
 		if (parent.endsWith("/")) {
 			parent = parent.substring(0, parent.length() - 1);
@@ -162,14 +444,7 @@ class JarWriter {
 				writeEntry(new JarEntry(parent), null);
 			}
 		}
-
-		if (this.writtenEntries.add(entry.getName())) {
-			this.jarOutput.putNextEntry(entry);
-			if (entryWriter != null) {
-				entryWriter.write(this.jarOutput);
-			}
-			this.jarOutput.closeEntry();
-		}
+		return this.writtenEntries.add(entry.getName());
 	}
 
 	/**
@@ -214,6 +489,67 @@ class JarWriter {
 
 	}
 
+	/**
+	 * An entry that has been deflated by one of the compression threads.
+	 */
+	private static class DeflatedEntry {
+
+		private final JarEntry entry;
+
+		private final long crc;
+
+		private final long size;
+
+		private byte[] data;
+
+		private int length;
+
+		public DeflatedEntry(JarEntry entry, byte[] content) {
+			this.entry = entry;
+			CRC32 crc = new CRC32();
+			crc.update(content);
+			this.crc = crc.getValue();
+			this.size = content.length;
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				deflater.setInput(content);
+				deflater.finish();
+				this.data = new byte[Math.max(BUFFER_SIZE, content.length / 2)];
+				while (!deflater.finished()) {
+					if (this.length == this.data.length) {
+						this.data = Arrays.copyOf(this.data, this.data.length * 2);
+					}
+					this.length += deflater.deflate(this.data, this.length,
+							this.data.length - this.length);
+				}
+			}
+			finally {
+				deflater.end();
+			}
+		}
+
+		public JarEntry getEntry() {
+			return this.entry;
+		}
+
+		public long getCrc() {
+			return this.crc;
+		}
+
+		public long getSize() {
+			return this.size;
+		}
+
+		public byte[] getData() {
+			return this.data;
+		}
+
+		public int getLength() {
+			return this.length;
+		}
+
+	}
+
 	/**
 	 * {@link InputStream} that can peek ahead at zip header bytes.
 	 */
@@ -263,44 +599,4 @@ class JarWriter {
 		}
 	}
 
-	/**
-	 * Data holder for CRC and Size
-	 */
-	private static class CrcAndSize {
-
-		private final CRC32 crc = new CRC32();
-
-		private long size;
-
-		public CrcAndSize(File file) throws IOException {
-			FileInputStream inputStream = new FileInputStream(file);
-			try {
-				load(inputStream);
-			}
-			finally {
-				inputStream.close();
-			}
-		}
-
-		public CrcAndSize(InputStream inputStream) throws IOException {
-			load(inputStream);
-		}
-
-		private void load(InputStream inputStream) throws IOException {
-			byte[] buffer = new byte[BUFFER_SIZE];
-			int bytesRead = -1;
-			while ((bytesRead = inputStream.read(buffer)) != -1) {
-				this.crc.update(buffer, 0, bytesRead);
-				this.size += bytesRead;
-			}
-		}
-
-		public void setupStoredEntry(JarEntry entry) {
-			entry.setSize(this.size);
-			entry.setCompressedSize(this.size);
-			entry.setCrc(this.crc.getValue());
-			entry.setMethod(ZipEntry.STORED);
-		}
-	}
-
 }
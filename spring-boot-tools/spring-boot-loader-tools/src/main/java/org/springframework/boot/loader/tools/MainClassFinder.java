@@ -16,20 +16,27 @@
 
 package org.springframework.boot.loader.tools;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayDeque;
+import java.io.InterruptedIOException;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Deque;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -41,7 +48,8 @@ import org.objectweb.asm.Type;
 
 /**
  * Finds any class with a {@code public static main} method by performing a breadth first
- * search.
+ * search. Large searches are performed in parallel, with classes that cannot contain a
+ * main method rejected using a quick check of their constant pool.
  * 
  * @author Phillip Webb
  */
@@ -56,6 +64,12 @@ public abstract class MainClassFinder {
 
 	private static final String MAIN_METHOD_NAME = "main";
 
+	private static final int PARALLEL_THRESHOLD = 500;
+
+	private static final int MAX_THREADS = 8;
+
+	private static final int BUFFER_SIZE = 4096;
+
 	private static final FileFilter CLASS_FILE_FILTER = new FileFilter() {
 		@Override
 		public boolean accept(File file) {
@@ -76,54 +90,40 @@ public abstract class MainClassFinder {
 	 * @return the main class or {@code null}
 	 * @throws IOException
 	 */
-	public static String findMainClass(File rootFolder) throws IOException {
+	public static String findMainClass(final File rootFolder) throws IOException {
 		if (!rootFolder.isDirectory()) {
 			throw new IllegalArgumentException("Inavlid root folder '" + rootFolder + "'");
 		}
-		File mainClassFile = findMainClassFile(rootFolder);
-		if (mainClassFile == null) {
-			return null;
-		}
-		String mainClass = mainClassFile.getAbsolutePath();
-		return convertToClassName(mainClass, rootFolder.getAbsolutePath() + "/");
-	}
-
-	private static File findMainClassFile(File root) throws IOException {
-		Deque<File> stack = new ArrayDeque<File>();
-		stack.push(root);
-		while (!stack.isEmpty()) {
-			File file = stack.pop();
-			if (file.isFile()) {
-				InputStream inputStream = new FileInputStream(file);
-				try {
-					if (isMainClass(inputStream)) {
-						return file;
-					}
+		ClassBytesProvider bytesProvider = new ClassBytesProvider() {
+			@Override
+			public byte[] getBytes(String name) throws IOException {
+				File file = new File(rootFolder, name);
+				return readBytes(new FileInputStream(file), file.length());
+			}
+		};
+		// Search one level at a time so that deeper folders need not be listed
+		Map<File, String> folders = Collections.singletonMap(rootFolder, "");
+		while (!folders.isEmpty()) {
+			List<String> classNames = new ArrayList<String>();
+			Map<File, String> nextFolders = new LinkedHashMap<File, String>();
+			for (Map.Entry<File, String> folder : folders.entrySet()) {
+				String prefix = folder.getValue();
+				for (File file : folder.getKey().listFiles(CLASS_FILE_FILTER)) {
+					classNames.add(prefix + file.getName());
 				}
-				finally {
-					inputStream.close();
+				for (File file : folder.getKey().listFiles(PACKAGE_FOLDER_FILTER)) {
+					nextFolders.put(file, prefix + file.getName() + "/");
 				}
 			}
-			if (file.isDirectory()) {
-				pushAllSorted(stack, file.listFiles(PACKAGE_FOLDER_FILTER));
-				pushAllSorted(stack, file.listFiles(CLASS_FILE_FILTER));
+			String mainClass = findMainClass(classNames, bytesProvider);
+			if (mainClass != null) {
+				return convertToClassName(mainClass, null);
 			}
+			folders = nextFolders;
 		}
 		return null;
 	}
 
-	private static void pushAllSorted(Deque<File> stack, File[] files) {
-		Arrays.sort(files, new Comparator<File>() {
-			@Override
-			public int compare(File o1, File o2) {
-				return o1.getName().compareTo(o2.getName());
-			}
-		});
-		for (File file : files) {
-			stack.push(file);
-		}
-	}
-
 	/**
 	 * Find the main class in a given jar file.
 	 * @param jarFile the jar file to search
@@ -131,25 +131,18 @@ public abstract class MainClassFinder {
 	 * @return the main class or {@code null}
 	 * @throws IOException
 	 */
-	public static String findMainClass(JarFile jarFile, String classesLocation)
+	public static String findMainClass(final JarFile jarFile, String classesLocation)
 			throws IOException {
-		List<JarEntry> classEntries = getClassEntries(jarFile, classesLocation);
-		Collections.sort(classEntries, new ClassEntryComparator());
-		for (JarEntry entry : classEntries) {
-			InputStream inputStream = new BufferedInputStream(
-					jarFile.getInputStream(entry));
-			try {
-				if (isMainClass(inputStream)) {
-					String name = entry.getName();
-					name = convertToClassName(name, classesLocation);
-					return name;
-				}
-			}
-			finally {
-				inputStream.close();
+		List<String> classNames = getClassNames(jarFile, classesLocation);
+		String mainClass = findMainClass(classNames, new ClassBytesProvider() {
+			@Override
+			public byte[] getBytes(String name) throws IOException {
+				JarEntry entry = jarFile.getJarEntry(name);
+				return readBytes(jarFile.getInputStream(entry), entry.getSize());
 			}
-		}
-		return null;
+		});
+		return (mainClass == null ? null : convertToClassName(mainClass,
+				classesLocation));
 	}
 
 	private static String convertToClassName(String name, String prefix) {
@@ -162,47 +155,286 @@ public abstract class MainClassFinder {
 		return name;
 	}
 
-	private static List<JarEntry> getClassEntries(JarFile source, String classesLocation) {
+	private static List<String> getClassNames(JarFile source, String classesLocation) {
 		classesLocation = (classesLocation != null ? classesLocation : "");
 		Enumeration<JarEntry> sourceEntries = source.entries();
-		List<JarEntry> classEntries = new ArrayList<JarEntry>();
+		List<String> classNames = new ArrayList<String>();
 		while (sourceEntries.hasMoreElements()) {
 			JarEntry entry = sourceEntries.nextElement();
 			if (entry.getName().startsWith(classesLocation)
 					&& entry.getName().endsWith(DOT_CLASS)) {
-				classEntries.add(entry);
+				classNames.add(entry.getName());
 			}
 		}
-		return classEntries;
+		return classNames;
 	}
 
-	private static boolean isMainClass(InputStream inputStream) {
+	/**
+	 * Find the first main class, searching breadth first. Large searches are performed
+	 * using several threads.
+	 * @param classNames the class file names
+	 * @param bytesProvider provides the bytes of each class
+	 * @return the name of the main class or {@code null}
+	 * @throws IOException
+	 */
+	private static String findMainClass(List<String> classNames,
+			ClassBytesProvider bytesProvider) throws IOException {
+		Collections.sort(classNames, new ClassNameComparator());
+		int threads = Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+		if (classNames.size() < PARALLEL_THRESHOLD) {
+			threads = 1;
+		}
+		return new MainClassSearch(classNames, bytesProvider).run(threads);
+	}
+
+	private static byte[] readBytes(InputStream inputStream, long size)
+			throws IOException {
 		try {
-			ClassReader classReader = new ClassReader(inputStream);
-			MainMethodFinder mainMethodFinder = new MainMethodFinder();
-			classReader.accept(mainMethodFinder, ClassReader.SKIP_CODE);
-			return mainMethodFinder.isFound();
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream(
+					size < 0 ? BUFFER_SIZE : (int) size);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int bytesRead;
+			while ((bytesRead = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, bytesRead);
+			}
+			return outputStream.toByteArray();
+		}
+		finally {
+			inputStream.close();
 		}
-		catch (IOException ex) {
+	}
+
+	private static boolean isMainClass(byte[] bytes) {
+		if (!ConstantPool.mayContainMainMethod(bytes)) {
 			return false;
 		}
+		ClassReader classReader = new ClassReader(bytes);
+		MainMethodFinder mainMethodFinder = new MainMethodFinder();
+		classReader.accept(mainMethodFinder, ClassReader.SKIP_CODE);
+		return mainMethodFinder.isFound();
+	}
+
+	/**
+	 * Provides the bytes of a class.
+	 */
+	private static interface ClassBytesProvider {
+
+		byte[] getBytes(String name) throws IOException;
+
+	}
+
+	/**
+	 * A search for the first main class in a sorted list of class names. Each worker
+	 * claims the next unchecked class so classes are checked in order, and workers stop
+	 * as soon as every remaining class comes after a main class that has been found.
+	 */
+	private static class MainClassSearch implements Callable<Void> {
+
+		private static final int NOT_FOUND = Integer.MAX_VALUE;
+
+		private final List<String> classNames;
+
+		private final ClassBytesProvider bytesProvider;
+
+		private final AtomicInteger next = new AtomicInteger();
+
+		private final AtomicInteger found = new AtomicInteger(NOT_FOUND);
+
+		public MainClassSearch(List<String> classNames, ClassBytesProvider bytesProvider) {
+			this.classNames = classNames;
+			this.bytesProvider = bytesProvider;
+		}
+
+		public String run(int threads) throws IOException {
+			if (threads <= 1) {
+				call();
+			}
+			else {
+				runInParallel(threads);
+			}
+			int index = this.found.get();
+			return (index == NOT_FOUND ? null : this.classNames.get(index));
+		}
+
+		private void runInParallel(int threads) throws IOException {
+			ExecutorService executor = Executors.newFixedThreadPool(threads,
+					new DaemonThreadFactory("main-class-finder-"));
+			try {
+				List<Future<Void>> futures = new ArrayList<Future<Void>>();
+				for (int i = 0; i < threads; i++) {
+					futures.add(executor.submit(this));
+				}
+				for (Future<Void> future : futures) {
+					get(future);
+				}
+			}
+			finally {
+				executor.shutdownNow();
+			}
+		}
+
+		private void get(Future<Void> future) throws IOException {
+			try {
+				future.get();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while finding main class");
+			}
+			catch (ExecutionException ex) {
+				if (ex.getCause() instanceof IOException) {
+					throw (IOException) ex.getCause();
+				}
+				if (ex.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) ex.getCause();
+				}
+				throw new IllegalStateException(ex.getCause());
+			}
+		}
+
+		@Override
+		public Void call() throws IOException {
+			int index;
+			while ((index = this.next.getAndIncrement()) < this.classNames.size()
+					&& index < this.found.get()) {
+				try {
+					if (isMainClass(this.bytesProvider.getBytes(this.classNames
+							.get(index)))) {
+						setFound(index);
+					}
+				}
+				catch (IOException ex) {
+					// Stop the other workers
+					this.found.set(-1);
+					throw ex;
+				}
+			}
+			return null;
+		}
+
+		private void setFound(int index) {
+			int current = this.found.get();
+			while (index < current && !this.found.compareAndSet(current, index)) {
+				current = this.found.get();
+			}
+		}
+
 	}
 
-	private static class ClassEntryComparator implements Comparator<JarEntry> {
+	/**
+	 * Checks the constant pool of a class for the name and descriptor of a main method
+	 * so that most classes can be rejected without being fully parsed.
+	 */
+	private static class ConstantPool {
+
+		private static final byte[] MAIN_NAME = getBytes(MAIN_METHOD_NAME);
+
+		private static final byte[] MAIN_DESCRIPTOR = getBytes(MAIN_METHOD_TYPE
+				.getDescriptor());
+
+		public static boolean mayContainMainMethod(byte[] bytes) {
+			try {
+				boolean name = false;
+				boolean descriptor = false;
+				int count = readUnsignedShort(bytes, 8);
+				int position = 10;
+				for (int i = 1; i < count; i++) {
+					int tag = bytes[position] & 0xFF;
+					switch (tag) {
+					case 1: // Utf8
+						int length = readUnsignedShort(bytes, position + 1);
+						name = name || matches(bytes, position + 3, length, MAIN_NAME);
+						descriptor = descriptor
+								|| matches(bytes, position + 3, length, MAIN_DESCRIPTOR);
+						if (name && descriptor) {
+							return true;
+						}
+						position += 3 + length;
+						break;
+					case 7: // Class
+					case 8: // String
+					case 16: // MethodType
+						position += 3;
+						break;
+					case 15: // MethodHandle
+						position += 4;
+						break;
+					case 3: // Integer
+					case 4: // Float
+					case 9: // Fieldref
+					case 10: // Methodref
+					case 11: // InterfaceMethodref
+					case 12: // NameAndType
+					case 18: // InvokeDynamic
+						position += 5;
+						break;
+					case 5: // Long
+					case 6: // Double
+						position += 9;
+						i++;
+						break;
+					default:
+						// Unknown constant, let ASM decide
+						return true;
+					}
+				}
+				return false;
+			}
+			catch (ArrayIndexOutOfBoundsException ex) {
+				return true;
+			}
+		}
+
+		private static int readUnsignedShort(byte[] bytes, int position) {
+			return ((bytes[position] & 0xFF) << 8) | (bytes[position + 1] & 0xFF);
+		}
+
+		private static boolean matches(byte[] bytes, int position, int length,
+				byte[] expected) {
+			if (length != expected.length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (bytes[position + i] != expected[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static byte[] getBytes(String value) {
+			try {
+				return value.getBytes("UTF-8");
+			}
+			catch (UnsupportedEncodingException ex) {
+				throw new IllegalStateException(ex);
+			}
+		}
+
+	}
+
+	/**
+	 * Orders class names breadth first and then by name.
+	 */
+	private static class ClassNameComparator implements Comparator<String> {
 
 		@Override
-		public int compare(JarEntry o1, JarEntry o2) {
-			Integer d1 = getDepth(o1);
-			Integer d2 = getDepth(o2);
-			int depthCompare = d1.compareTo(d2);
+		public int compare(String o1, String o2) {
+			int depthCompare = getDepth(o1) - getDepth(o2);
 			if (depthCompare != 0) {
 				return depthCompare;
 			}
-			return o1.getName().compareTo(o2.getName());
+			return o1.compareTo(o2);
 		}
 
-		private int getDepth(JarEntry entry) {
-			return entry.getName().split("/").length;
+		private int getDepth(String name) {
+			int depth = 0;
+			for (int i = 0; i < name.length(); i++) {
+				if (name.charAt(i) == '/') {
+					depth++;
+				}
+			}
+			return depth;
 		}
 
 	}
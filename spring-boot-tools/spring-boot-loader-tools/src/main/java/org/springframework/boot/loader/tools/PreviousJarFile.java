@@ -0,0 +1,188 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A previously repackaged jar file from which unchanged nested libraries can be copied
+ * when repackaging incrementally. A library is considered unchanged when the previous
+ * entry has the same size and modification time as the library file and the library was
+ * last modified before the previous jar was written or, failing that, when the entry
+ * has the same size and CRC.
+ *
+ * @author agent
+ */
+class PreviousJarFile {
+
+	/**
+	 * The precision of the time stored in a zip entry.
+	 */
+	private static final long TIME_PRECISION = 2000;
+
+	private static final int BUFFER_SIZE = 4096;
+
+	private final long lastModified;
+
+	private final ZipFile zipFile;
+
+	private final FileInputStream inputStream;
+
+	private final CentralDirectory centralDirectory;
+
+	private final Map<String, Set<String>> packageIndex;
+
+	/**
+	 * Create a new {@link PreviousJarFile} instance.
+	 * @param file the previously repackaged file
+	 * @throws IOException if the file cannot be read
+	 */
+	public PreviousJarFile(File file) throws IOException {
+		this.lastModified = file.lastModified();
+		this.zipFile = new ZipFile(file);
+		try {
+			this.inputStream = new FileInputStream(file);
+			this.centralDirectory = CentralDirectory.read(this.inputStream.getChannel());
+			this.packageIndex = readPackageIndex();
+		}
+		catch (IOException ex) {
+			close();
+			throw ex;
+		}
+	}
+
+	private Map<String, Set<String>> readPackageIndex() throws IOException {
+		Map<String, Set<String>> packageIndex = new HashMap<String, Set<String>>();
+		ZipEntry entry = this.zipFile.getEntry(JarWriter.PACKAGE_INDEX);
+		if (entry == null) {
+			return packageIndex;
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				this.zipFile.getInputStream(entry), "UTF-8"));
+		try {
+			Set<String> directories = null;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0) {
+					directories = null;
+				}
+				else if (directories == null) {
+					directories = new TreeSet<String>();
+					packageIndex.put(line, directories);
+				}
+				else {
+					directories.add(line);
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return packageIndex;
+	}
+
+	/**
+	 * Return the previous entry for a nested library if the library is unchanged.
+	 * @param name the name of the entry
+	 * @param file the library file
+	 * @return the previous entry or {@code null} if the library has changed
+	 * @throws IOException
+	 */
+	public ZipEntry getUnchangedLibrary(String name, File file) throws IOException {
+		ZipEntry entry = this.zipFile.getEntry(name);
+		if (entry == null || entry.getMethod() != ZipEntry.STORED
+				|| entry.getSize() != file.length()
+				|| this.centralDirectory.get(name) == null) {
+			return null;
+		}
+		if (Math.abs(entry.getTime() - file.lastModified()) < TIME_PRECISION
+				&& file.lastModified() < this.lastModified) {
+			// Entry times cannot tell apart changes made within the same two seconds so
+			// the time alone is only trusted when the library is older than the jar
+			return entry;
+		}
+		return (entry.getCrc() == getCrc(file) ? entry : null);
+	}
+
+	private long getCrc(File file) throws IOException {
+		CRC32 crc = new CRC32();
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int bytesRead;
+			while ((bytesRead = inputStream.read(buffer)) != -1) {
+				crc.update(buffer, 0, bytesRead);
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+		return crc.getValue();
+	}
+
+	/**
+	 * Return the package index directories previously recorded for a nested library.
+	 * @param name the name of the library entry
+	 * @return the directories or {@code null}
+	 */
+	public Set<String> getPackageIndex(String name) {
+		return this.packageIndex.get(name);
+	}
+
+	/**
+	 * Return the position of the raw data of the named entry.
+	 * @param name the entry name
+	 * @return the position of the data
+	 * @throws IOException
+	 */
+	public long getDataOffset(String name) throws IOException {
+		return this.centralDirectory.getDataOffset(this.centralDirectory.get(name));
+	}
+
+	/**
+	 * Return the channel used to read raw data.
+	 * @return the channel
+	 */
+	public FileChannel getChannel() {
+		return this.inputStream.getChannel();
+	}
+
+	public void close() throws IOException {
+		try {
+			this.zipFile.close();
+		}
+		finally {
+			if (this.inputStream != null) {
+				this.inputStream.close();
+			}
+		}
+	}
+
+}
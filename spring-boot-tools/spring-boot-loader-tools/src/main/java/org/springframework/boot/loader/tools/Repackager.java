@@ -37,6 +37,10 @@ public class Repackager {
 
 	private boolean backupSource = true;
 
+	private boolean incremental;
+
+	private int compressionThreads = 1;
+
 	private final File source;
 
 	private Layout layout;
@@ -46,7 +50,6 @@ public class Repackager {
 			throw new IllegalArgumentException("Source must refer to an existing file");
 		}
 		this.source = source.getAbsoluteFile();
-		this.layout = Layouts.forFile(source);
 	}
 
 	/**
@@ -67,6 +70,32 @@ public class Repackager {
 		this.backupSource = backupSource;
 	}
 
+	/**
+	 * Sets if repackaging should be incremental. When {@code true} and a previously
+	 * repackaged destination exists, unchanged libraries are copied from it rather than
+	 * being read and written in full. Only applies when the destination is not the
+	 * source.
+	 * @param incremental if repackaging should be incremental
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Sets the number of threads used to compress entries. Most entries are copied
+	 * without being recompressed (and nested libraries are stored) so only the manifest,
+	 * the loader classes and the package index are compressed. Additional threads only
+	 * help when there are many other entries that need to be compressed. Defaults to
+	 * {@code 1}.
+	 * @param compressionThreads the number of compression threads
+	 */
+	public void setCompressionThreads(int compressionThreads) {
+		if (compressionThreads < 1) {
+			throw new IllegalArgumentException("Compression threads must be positive");
+		}
+		this.compressionThreads = compressionThreads;
+	}
+
 	/**
 	 * Sets the layout to use for the jar. Defaults to {@link Layouts#forFile(File)}.
 	 * @param layout the layout
@@ -101,6 +130,9 @@ public class Repackager {
 		if (libraries == null) {
 			throw new IllegalArgumentException("Libraries must not be null");
 		}
+		if (this.layout == null) {
+			this.layout = Layouts.forFile(this.source);
+		}
 		destination = destination.getAbsoluteFile();
 		File workingSource = this.source;
 		if (this.source.equals(destination)) {
@@ -109,11 +141,18 @@ public class Repackager {
 			workingSource.delete();
 			renameFile(this.source, workingSource);
 		}
+		File previous = null;
+		if (this.incremental && workingSource == this.source && destination.isFile()) {
+			previous = new File(destination.getParentFile(), destination.getName()
+					+ ".previous");
+			previous.delete();
+			renameFile(destination, previous);
+		}
 		destination.delete();
 		try {
 			JarFile jarFileSource = new JarFile(workingSource);
 			try {
-				repackage(jarFileSource, destination, libraries);
+				repackage(jarFileSource, destination, libraries, previous);
 			}
 			finally {
 				jarFileSource.close();
@@ -123,13 +162,20 @@ public class Repackager {
 			if (!this.backupSource && !this.source.equals(workingSource)) {
 				deleteFile(workingSource);
 			}
+			if (previous != null) {
+				deleteFile(previous);
+			}
 		}
 	}
 
-	private void repackage(JarFile sourceJar, File destination, Libraries libraries)
-			throws IOException {
-		final JarWriter writer = new JarWriter(destination);
+	private void repackage(JarFile sourceJar, File destination, Libraries libraries,
+			File previous) throws IOException {
+		final JarWriter writer = new JarWriter(destination, this.compressionThreads);
+		boolean written = false;
 		try {
+			if (previous != null) {
+				writer.setPrevious(previous);
+			}
 			writer.writeManifest(buildManifest(sourceJar));
 			writer.writeEntries(sourceJar);
 			libraries.doWithLibraries(new LibraryCallback() {
@@ -143,14 +189,23 @@ public class Repackager {
 					}
 				}
 			});
+			writer.writePackageIndex();
 			writer.writeLoaderClasses();
+			written = true;
 		}
 		finally {
-			try {
+			if (written) {
+				// Closing writes deferred entries and the central directory so failures
+				// must not be ignored
 				writer.close();
 			}
-			catch (Exception ex) {
-				// Ignore
+			else {
+				try {
+					writer.close();
+				}
+				catch (Exception ex) {
+					// Ignore so that the original exception is thrown
+				}
 			}
 		}
 	}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link JarWriter}.
+ *
+ * @author agent
+ */
+public class JarWriterTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void parallelCompressionMatchesSingleThread() throws Exception {
+		File library = this.temporaryFolder.newFile("library.jar");
+		JarOutputStream outputStream = new JarOutputStream(new FileOutputStream(
+				library));
+		try {
+			outputStream.putNextEntry(new JarEntry("a/b/C.class"));
+			outputStream.write(new byte[] { 1, 2, 3 });
+			outputStream.closeEntry();
+		}
+		finally {
+			outputStream.close();
+		}
+		Map<String, String> single = getEntries(write(library, 1));
+		Map<String, String> parallel = getEntries(write(library, 4));
+		assertThat(single.size(), greaterThan(3));
+		assertThat(parallel, equalTo(single));
+	}
+
+	private File write(File library, int threads) throws IOException {
+		File file = this.temporaryFolder.newFile();
+		Manifest manifest = new Manifest();
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		JarWriter writer = new JarWriter(file, threads);
+		try {
+			writer.writeManifest(manifest);
+			writer.writeNestedLibrary("lib/library.jar", library);
+			writer.writeLoaderClasses();
+			writer.writePackageIndex();
+		}
+		finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private Map<String, String> getEntries(File file) throws IOException {
+		// Times are not compared since entries without one are written with the current
+		// time
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		JarFile jarFile = new JarFile(file);
+		try {
+			Enumeration<JarEntry> enumeration = jarFile.entries();
+			while (enumeration.hasMoreElements()) {
+				JarEntry entry = enumeration.nextElement();
+				entries.put(entry.getName(), entry.getMethod() + ":" + entry.getCrc()
+						+ ":" + entry.getCompressedSize() + ":" + entry.getSize());
+			}
+		}
+		finally {
+			jarFile.close();
+		}
+		return entries;
+	}
+
+}
@@ -71,6 +71,19 @@ public class MainClassFinderTests {
 		assertThat(actual, equalTo("a.B"));
 	}
 
+	@Test
+	public void usesBreadthFirstJarSearchWithManyClasses() throws Exception {
+		for (int i = 0; i < 1000; i++) {
+			this.testJarFile.addClass("a/b/C" + i + ".class",
+					ClassWithoutMainMethod.class);
+		}
+		this.testJarFile.addClass("a/b/c/D.class", ClassWithMainMethod.class);
+		this.testJarFile.addClass("a/b/E.class", ClassWithMainMethod.class);
+		this.testJarFile.addClass("a/b/F.class", ClassWithMainMethod.class);
+		String actual = MainClassFinder.findMainClass(this.testJarFile.getJarFile(), "");
+		assertThat(actual, equalTo("a.b.E"));
+	}
+
 	@Test
 	public void findMainClassInJarSubLocation() throws Exception {
 		this.testJarFile.addClass("a/B.class", ClassWithMainMethod.class);
@@ -98,6 +111,14 @@ public class MainClassFinderTests {
 		assertThat(actual, equalTo("a.b.c.D"));
 	}
 
+	@Test
+	public void usesBreadthFirstFolderSearchAcrossFolders() throws Exception {
+		this.testJarFile.addClass("a/B.class", ClassWithMainMethod.class);
+		this.testJarFile.addClass("z/y/X.class", ClassWithMainMethod.class);
+		String actual = MainClassFinder.findMainClass(this.testJarFile.getJarSource());
+		assertThat(actual, equalTo("a.B"));
+	}
+
 	@Test
 	public void usesBreadthFirstFolderSearch() throws Exception {
 		this.testJarFile.addClass("a/B.class", ClassWithMainMethod.class);
@@ -16,8 +16,13 @@
 
 package org.springframework.boot.loader.tools;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.zip.ZipEntry;
@@ -234,6 +239,24 @@ public class RepackagerTests {
 		assertThat(hasEntry(file, "lib/" + libJarFile.getName()), equalTo(true));
 	}
 
+	@Test
+	public void packageIndex() throws Exception {
+		TestJarFile libJar = new TestJarFile(this.temporaryFolder);
+		libJar.addClass("a/b/C.class", ClassWithoutMainMethod.class);
+		final File libJarFile = libJar.getFile();
+		this.testJarFile.addClass("a/b/C.class", ClassWithMainMethod.class);
+		File file = this.testJarFile.getFile();
+		Repackager repackager = new Repackager(file);
+		repackager.repackage(new Libraries() {
+			@Override
+			public void doWithLibraries(LibraryCallback callback) throws IOException {
+				callback.library(libJarFile, LibraryScope.COMPILE);
+			}
+		});
+		assertThat(getEntryContent(file, "META-INF/package.idx"), equalTo("lib/"
+				+ libJarFile.getName() + "\na/\na/b/\n\n"));
+	}
+
 	@Test
 	public void customLayout() throws Exception {
 		TestJarFile libJar = new TestJarFile(this.temporaryFolder);
@@ -296,6 +319,119 @@ public class RepackagerTests {
 
 	}
 
+	@Test
+	public void entriesAreNotRecompressed() throws Exception {
+		this.testJarFile.addClass("a/b/C.class", ClassWithMainMethod.class);
+		File source = this.testJarFile.getFile();
+		File destination = this.temporaryFolder.newFile("dest.jar");
+		Repackager repackager = new Repackager(source);
+		repackager.repackage(destination, NO_LIBRARIES);
+		JarFile sourceJar = new JarFile(source);
+		JarFile destinationJar = new JarFile(destination);
+		try {
+			ZipEntry sourceEntry = sourceJar.getEntry("a/b/C.class");
+			ZipEntry destinationEntry = destinationJar.getEntry("a/b/C.class");
+			assertThat(destinationEntry.getMethod(), equalTo(ZipEntry.DEFLATED));
+			assertThat(destinationEntry.getCompressedSize(),
+					equalTo(sourceEntry.getCompressedSize()));
+			assertThat(destinationEntry.getCrc(), equalTo(sourceEntry.getCrc()));
+		}
+		finally {
+			sourceJar.close();
+			destinationJar.close();
+		}
+		assertThat(getEntryContent(destination, "a/b/C.class"),
+				equalTo(getEntryContent(source, "a/b/C.class")));
+	}
+
+	@Test
+	public void incrementalReusesUnchangedLibraries() throws Exception {
+		TestJarFile libJar = new TestJarFile(this.temporaryFolder);
+		libJar.addClass("a/b/C.class", ClassWithoutMainMethod.class);
+		final File libJarFile = libJar.getFile();
+		this.testJarFile.addClass("a/b/C.class", ClassWithMainMethod.class);
+		File file = this.testJarFile.getFile();
+		File destination = this.temporaryFolder.newFile("dest.jar");
+		Libraries libraries = new Libraries() {
+			@Override
+			public void doWithLibraries(LibraryCallback callback) throws IOException {
+				callback.library(libJarFile, LibraryScope.COMPILE);
+			}
+		};
+		long lastModified = System.currentTimeMillis() - 60000;
+		libJarFile.setLastModified(lastModified);
+		Repackager repackager = new Repackager(file);
+		repackager.setIncremental(true);
+		repackager.repackage(destination, libraries);
+		String packageIndex = getEntryContent(destination, "META-INF/package.idx");
+		String content = getContent(libJarFile);
+		// The time of the library is unchanged so different content with the same
+		// size can only be ignored if the previous entry was reused
+		writeContent(libJarFile, new byte[(int) libJarFile.length()]);
+		libJarFile.setLastModified(lastModified);
+		repackager.repackage(destination, libraries);
+		assertThat(getEntryContent(destination, "lib/" + libJarFile.getName()),
+				equalTo(content));
+		assertThat(getEntryContent(destination, "META-INF/package.idx"),
+				equalTo(packageIndex));
+		assertThat(new File(destination.getParentFile(), "dest.jar.previous").exists(),
+				equalTo(false));
+	}
+
+	@Test
+	public void incrementalWritesLibrariesChangedWithinTimePrecision() throws Exception {
+		TestJarFile libJar = new TestJarFile(this.temporaryFolder);
+		libJar.addClass("a/b/C.class", ClassWithoutMainMethod.class);
+		final File libJarFile = libJar.getFile();
+		this.testJarFile.addClass("a/b/C.class", ClassWithMainMethod.class);
+		File file = this.testJarFile.getFile();
+		File destination = this.temporaryFolder.newFile("dest.jar");
+		Libraries libraries = new Libraries() {
+			@Override
+			public void doWithLibraries(LibraryCallback callback) throws IOException {
+				callback.library(libJarFile, LibraryScope.COMPILE);
+			}
+		};
+		// A library modified after the jar was written, with the same size and time
+		long lastModified = System.currentTimeMillis() + 60000;
+		libJarFile.setLastModified(lastModified);
+		Repackager repackager = new Repackager(file);
+		repackager.setIncremental(true);
+		repackager.repackage(destination, libraries);
+		byte[] changed = new byte[(int) libJarFile.length()];
+		writeContent(libJarFile, changed);
+		libJarFile.setLastModified(lastModified);
+		repackager.repackage(destination, libraries);
+		assertThat(getEntryContent(destination, "lib/" + libJarFile.getName()),
+				equalTo(new String(changed, "UTF-8")));
+	}
+
+	@Test
+	public void incrementalWritesChangedLibraries() throws Exception {
+		TestJarFile libJar = new TestJarFile(this.temporaryFolder);
+		libJar.addClass("a/b/C.class", ClassWithoutMainMethod.class);
+		final File libJarFile = libJar.getFile();
+		this.testJarFile.addClass("a/b/C.class", ClassWithMainMethod.class);
+		File file = this.testJarFile.getFile();
+		File destination = this.temporaryFolder.newFile("dest.jar");
+		Libraries libraries = new Libraries() {
+			@Override
+			public void doWithLibraries(LibraryCallback callback) throws IOException {
+				callback.library(libJarFile, LibraryScope.COMPILE);
+			}
+		};
+		Repackager repackager = new Repackager(file);
+		repackager.setIncremental(true);
+		repackager.repackage(destination, libraries);
+		libJar.addClass("d/e/F.class", ClassWithoutMainMethod.class);
+		File changedLibJarFile = libJar.getFile();
+		libJarFile.delete();
+		changedLibJarFile.renameTo(libJarFile);
+		repackager.repackage(destination, libraries);
+		assertThat(getEntryContent(destination, "META-INF/package.idx"), equalTo("lib/"
+				+ libJarFile.getName() + "\na/\na/b/\nd/\nd/e/\n\n"));
+	}
+
 	private boolean hasLauncherClasses(File file) throws IOException {
 		return hasEntry(file, "org/springframework/boot/")
 				&& hasEntry(file, "org/springframework/boot/loader/JarLauncher.class");
@@ -311,6 +447,48 @@ public class RepackagerTests {
 		}
 	}
 
+	private String getEntryContent(File file, String name) throws IOException {
+		JarFile jarFile = new JarFile(file);
+		try {
+			InputStream inputStream = jarFile.getInputStream(jarFile.getEntry(name));
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			int b;
+			while ((b = inputStream.read()) != -1) {
+				outputStream.write(b);
+			}
+			inputStream.close();
+			return new String(outputStream.toByteArray(), "UTF-8");
+		}
+		finally {
+			jarFile.close();
+		}
+	}
+
+	private String getContent(File file) throws IOException {
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			int b;
+			while ((b = inputStream.read()) != -1) {
+				outputStream.write(b);
+			}
+			return new String(outputStream.toByteArray(), "UTF-8");
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	private void writeContent(File file, byte[] content) throws IOException {
+		OutputStream outputStream = new FileOutputStream(file);
+		try {
+			outputStream.write(content);
+		}
+		finally {
+			outputStream.close();
+		}
+	}
+
 	private Manifest getManifest(File file) throws IOException {
 		JarFile jarFile = new JarFile(file);
 		try {
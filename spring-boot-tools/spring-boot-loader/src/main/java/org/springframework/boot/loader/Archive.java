@@ -42,6 +42,15 @@ public interface Archive {
 	 */
 	Iterable<Entry> getEntries();
 
+	/**
+	 * Returns the archive entries contained in the specified directory (and its
+	 * sub-directories). Implementations need not visit entries outside of the
+	 * directory.
+	 * @param directory the directory name ending with '/'
+	 * @return the archive entries within the directory
+	 */
+	Iterable<Entry> getEntries(String directory);
+
 	/**
 	 * Returns a URL that can be used to load the archive.
 	 * @return the archive URL
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prefetches the classes and resources from a trace written by a
+ * {@link ClassLoadingRecorder}. Entries are read (and decompressed) using background
+ * threads, in the order that they were recorded, so that the data is already available
+ * when the application requests it.
+ *
+ * @author agent
+ * @see ClassLoadingRecorder
+ */
+public class ClassLoadingPrefetcher {
+
+	private final List<String> names;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final AtomicInteger prefetched = new AtomicInteger();
+
+	ClassLoadingPrefetcher(List<String> names) {
+		this.names = Collections.unmodifiableList(names);
+	}
+
+	/**
+	 * Returns the resource names that will be prefetched (classes are returned as
+	 * {@code .class} resource names).
+	 * @return the names
+	 */
+	public List<String> getNames() {
+		return this.names;
+	}
+
+	/**
+	 * Returns the number of names that have been prefetched.
+	 * @return the number of names prefetched
+	 */
+	public int getPrefetchedCount() {
+		return this.prefetched.get();
+	}
+
+	/**
+	 * Start prefetching using background daemon threads. Prefetched classes that have not
+	 * been requested once the duration has elapsed are discarded.
+	 * @param classLoader the class loader to prefetch from
+	 * @param threads the number of threads to use
+	 * @param duration the time in milliseconds that prefetched classes are retained
+	 */
+	public void start(final LaunchedURLClassLoader classLoader, int threads,
+			final long duration) {
+		for (int i = 0; i < threads; i++) {
+			Thread thread = new Thread("loader-prefetch-" + (i + 1)) {
+				@Override
+				public void run() {
+					prefetch(classLoader);
+				}
+			};
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			thread.start();
+		}
+		Thread timer = new Thread("loader-prefetch-timer") {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(duration);
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				classLoader.clearPrefetched();
+			}
+		};
+		timer.setDaemon(true);
+		timer.start();
+	}
+
+	/**
+	 * Prefetch names using the current thread until all names have been taken.
+	 * @param classLoader the class loader to prefetch from
+	 */
+	void prefetch(LaunchedURLClassLoader classLoader) {
+		int index;
+		while ((index = this.next.getAndIncrement()) < this.names.size()) {
+			try {
+				classLoader.prefetch(this.names.get(index));
+				this.prefetched.incrementAndGet();
+			}
+			catch (Exception ex) {
+				// Ignore, the name will be loaded on demand
+			}
+		}
+	}
+
+	/**
+	 * Load a prefetcher from the specified trace file.
+	 * @param file the trace file
+	 * @return the prefetcher
+	 * @throws IOException
+	 */
+	public static ClassLoadingPrefetcher load(File file) throws IOException {
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			return load(inputStream);
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	static ClassLoadingPrefetcher load(InputStream inputStream) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
+				"UTF-8"));
+		List<String> names = new ArrayList<String>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.startsWith(ClassLoadingRecorder.RESOURCE_PREFIX)) {
+				names.add(line.substring(ClassLoadingRecorder.RESOURCE_PREFIX.length()));
+			}
+			else if (line.length() > 0 && !line.startsWith("#")) {
+				names.add(line + ".class");
+			}
+		}
+		return new ClassLoadingPrefetcher(names);
+	}
+
+}
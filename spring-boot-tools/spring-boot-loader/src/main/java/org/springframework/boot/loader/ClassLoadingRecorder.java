@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records the classes and resources loaded by a {@link LaunchedURLClassLoader} during
+ * startup so that they can be {@link ClassLoadingPrefetcher prefetched} when the
+ * application is next launched.
+ * <p>
+ * The trace is a UTF-8 text file with one name per line, in the order that the names
+ * were first loaded. Classes are written using their internal name (for example
+ * {@code org/example/Foo}) and resources are written as comments (for example
+ * {@code # resource META-INF/spring.factories}) so that the file can also be used as a
+ * JVM class-data-sharing class list.
+ *
+ * @author agent
+ * @see ClassLoadingPrefetcher
+ */
+public class ClassLoadingRecorder {
+
+	static final String RESOURCE_PREFIX = "# resource ";
+
+	private final File file;
+
+	private final long endTime;
+
+	private final Set<String> lines = new LinkedHashSet<String>();
+
+	private boolean recording = true;
+
+	/**
+	 * Create a new {@link ClassLoadingRecorder} instance.
+	 * @param file the file that the trace is written to when recording stops
+	 * @param duration the maximum duration of the recording in milliseconds
+	 */
+	public ClassLoadingRecorder(File file, long duration) {
+		this.file = file;
+		this.endTime = System.currentTimeMillis() + duration;
+	}
+
+	/**
+	 * Start a daemon thread that will {@link #stop() stop} the recording once the
+	 * duration has elapsed and register a shutdown hook so that the trace is also
+	 * written if the JVM exits before then.
+	 */
+	public void start() {
+		Thread timer = new Thread("loader-trace") {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(Math.max(0,
+							ClassLoadingRecorder.this.endTime - System.currentTimeMillis()));
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				ClassLoadingRecorder.this.stop();
+			}
+		};
+		timer.setDaemon(true);
+		timer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				ClassLoadingRecorder.this.stop();
+			}
+		});
+	}
+
+	/**
+	 * Record that a class has been loaded.
+	 * @param name the class name
+	 */
+	public void classLoaded(String name) {
+		record(name.replace('.', '/'));
+	}
+
+	/**
+	 * Record that a resource has been found.
+	 * @param name the resource name
+	 */
+	public void resourceFound(String name) {
+		record(RESOURCE_PREFIX + name);
+	}
+
+	private synchronized void record(String line) {
+		if (this.recording) {
+			if (System.currentTimeMillis() > this.endTime) {
+				stop();
+			}
+			else {
+				this.lines.add(line);
+			}
+		}
+	}
+
+	/**
+	 * Stop recording and write the trace file. Subsequent calls have no effect.
+	 */
+	public synchronized void stop() {
+		if (!this.recording) {
+			return;
+		}
+		this.recording = false;
+		try {
+			write(new ArrayList<String>(this.lines));
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to write class loading trace to "
+					+ this.file, ex);
+		}
+		finally {
+			this.lines.clear();
+		}
+	}
+
+	private void write(List<String> lines) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(this.file), "UTF-8");
+		try {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write("\n");
+			}
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the recorder is still recording.
+	 * @return if recording
+	 */
+	public synchronized boolean isRecording() {
+		return this.recording;
+	}
+
+}
@@ -20,20 +20,25 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.jar.Manifest;
 
 /**
- * {@link Archive} implementation backed by an exploded archive directory.
+ * {@link Archive} implementation backed by an exploded archive directory. Entries are not
+ * indexed up front, the directory tree is only walked as {@link #getEntries() entries}
+ * are iterated (starting from the requested directory) and individual entries are
+ * resolved directly against the file system.
  * 
  * @author Phillip Webb
  */
@@ -42,11 +47,11 @@ public class ExplodedArchive implements Archive {
 	private static final Set<String> SKIPPED_NAMES = new HashSet<String>(Arrays.asList(
 			".", ".."));
 
-	private static final Object MANIFEST_ENTRY_NAME = "META-INF/MANIFEST.MF";
+	private static final String MANIFEST_ENTRY_NAME = "META-INF/MANIFEST.MF";
 
-	private File root;
+	private final File root;
 
-	private Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+	private final EntryFilter filter;
 
 	private Manifest manifest;
 
@@ -55,38 +60,19 @@ public class ExplodedArchive implements Archive {
 			throw new IllegalArgumentException("Invalid source folder " + root);
 		}
 		this.root = root;
-		buildEntries(root);
-		this.entries = Collections.unmodifiableMap(this.entries);
+		this.filter = null;
 	}
 
-	private ExplodedArchive(File root, Map<String, Entry> entries) {
+	private ExplodedArchive(File root, EntryFilter filter) {
 		this.root = root;
-		this.entries = Collections.unmodifiableMap(entries);
-	}
-
-	private void buildEntries(File file) {
-		if (!file.equals(this.root)) {
-			String name = file.getAbsolutePath().substring(
-					this.root.getAbsolutePath().length() + 1);
-			if (file.isDirectory()) {
-				name += "/";
-			}
-			this.entries.put(name, new FileEntry(name, file));
-		}
-		if (file.isDirectory()) {
-			for (File child : file.listFiles()) {
-				if (!SKIPPED_NAMES.contains(child.getName())) {
-					buildEntries(child);
-				}
-			}
-		}
+		this.filter = filter;
 	}
 
 	@Override
 	public Manifest getManifest() throws IOException {
-		if (this.manifest == null && this.entries.containsKey(MANIFEST_ENTRY_NAME)) {
-			FileEntry entry = (FileEntry) this.entries.get(MANIFEST_ENTRY_NAME);
-			FileInputStream inputStream = new FileInputStream(entry.getFile());
+		if (this.manifest == null && containsEntry(MANIFEST_ENTRY_NAME)) {
+			FileInputStream inputStream = new FileInputStream(new File(this.root,
+					MANIFEST_ENTRY_NAME));
 			try {
 				this.manifest = new Manifest(inputStream);
 			}
@@ -97,9 +83,46 @@ public class ExplodedArchive implements Archive {
 		return this.manifest;
 	}
 
+	/**
+	 * Determine if the archive contains an entry with the specified name. Entries are
+	 * checked against the file system rather than an index.
+	 * @param name the entry name (directory names end with '/')
+	 * @return if the entry is contained in the archive
+	 */
+	private boolean containsEntry(String name) {
+		if (name.length() == 0) {
+			return false;
+		}
+		File file = new File(this.root, name);
+		if (!file.exists() || file.isDirectory() != name.endsWith("/")) {
+			return false;
+		}
+		return (this.filter == null || name.equals(this.filter.apply(name,
+				new FileEntry(name, file))));
+	}
+
 	@Override
 	public Iterable<Entry> getEntries() {
-		return this.entries.values();
+		return new Iterable<Entry>() {
+			@Override
+			public Iterator<Entry> iterator() {
+				return new FileEntryIterator(ExplodedArchive.this.root, "",
+						ExplodedArchive.this.filter);
+			}
+		};
+	}
+
+	@Override
+	public Iterable<Entry> getEntries(final String directory) {
+		return new Iterable<Entry>() {
+			@Override
+			public Iterator<Entry> iterator() {
+				// Only the directory itself is walked, other parts of the tree (for
+				// example static resources) are never listed
+				return new FileEntryIterator(new File(ExplodedArchive.this.root,
+						directory), directory, ExplodedArchive.this.filter);
+			}
+		};
 	}
 
 	@Override
@@ -116,19 +139,100 @@ public class ExplodedArchive implements Archive {
 	}
 
 	@Override
-	public Archive getFilteredArchive(EntryFilter filter) throws IOException {
-		Map<String, Entry> filteredEntries = new LinkedHashMap<String, Archive.Entry>();
-		for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
-			String filteredName = filter.apply(entry.getKey(), entry.getValue());
-			if (filteredName != null) {
-				filteredEntries.put(filteredName, new FileEntry(filteredName,
-						((FileEntry) entry.getValue()).getFile()));
+	public Archive getFilteredArchive(final EntryFilter filter) throws IOException {
+		final EntryFilter existingFilter = this.filter;
+		if (existingFilter == null) {
+			return new ExplodedArchive(this.root, filter);
+		}
+		return new ExplodedArchive(this.root, new EntryFilter() {
+			@Override
+			public String apply(String entryName, Entry entry) {
+				String name = existingFilter.apply(entryName, entry);
+				return (name == null ? null : filter.apply(name, entry));
+			}
+		});
+	}
+
+	/**
+	 * {@link Iterator} that lazily walks the directory tree, in the same order as
+	 * {@link File#listFiles()}, listing each directory only when it is reached.
+	 */
+	private static class FileEntryIterator implements Iterator<Entry> {
+
+		private final EntryFilter filter;
+
+		private final Deque<Iterator<File>> files = new ArrayDeque<Iterator<File>>();
+
+		private final Deque<String> prefixes = new ArrayDeque<String>();
+
+		private Entry next;
+
+		public FileEntryIterator(File directory, String prefix, EntryFilter filter) {
+			this.filter = filter;
+			push(directory, prefix);
+			this.next = poll();
+		}
+
+		private void push(File directory, String prefix) {
+			File[] children = directory.listFiles();
+			if (children != null && children.length > 0) {
+				this.files.push(Arrays.asList(children).iterator());
+				this.prefixes.push(prefix);
+			}
+		}
+
+		private Entry poll() {
+			while (!this.files.isEmpty()) {
+				Iterator<File> iterator = this.files.peek();
+				String prefix = this.prefixes.peek();
+				if (!iterator.hasNext()) {
+					this.files.pop();
+					this.prefixes.pop();
+					continue;
+				}
+				File file = iterator.next();
+				if (SKIPPED_NAMES.contains(file.getName())) {
+					continue;
+				}
+				String name = prefix + file.getName();
+				if (file.isDirectory()) {
+					name += "/";
+					push(file, name);
+				}
+				FileEntry entry = new FileEntry(name, file);
+				String filteredName = (this.filter == null ? name : this.filter.apply(
+						name, entry));
+				if (filteredName != null) {
+					return (filteredName.equals(name) ? entry : new FileEntry(
+							filteredName, file));
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next != null;
+		}
+
+		@Override
+		public Entry next() {
+			if (this.next == null) {
+				throw new NoSuchElementException();
 			}
+			Entry entry = this.next;
+			this.next = poll();
+			return entry;
 		}
-		return new ExplodedArchive(this.root, filteredEntries);
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("remove");
+		}
+
 	}
 
-	private class FileEntry implements Entry {
+	private static class FileEntry implements Entry {
 
 		private final String name;
 		private final File file;
@@ -165,11 +269,60 @@ public class ExplodedArchive implements Archive {
 		protected URLConnection openConnection(URL url) throws IOException {
 			String name = url.getPath().substring(
 					ExplodedArchive.this.root.getAbsolutePath().length() + 1);
-			if (ExplodedArchive.this.entries.containsKey(name)) {
-				return new URL(url.toString()).openConnection();
+			if (!containsEntry(name)) {
+				return new FileNotFoundURLConnection(url, name);
+			}
+			File file = new File(ExplodedArchive.this.root, name);
+			if (file.isDirectory()) {
+				return file.toURI().toURL().openConnection();
+			}
+			return new FileURLConnection(url, file);
+		}
+	}
+
+	/**
+	 * {@link URLConnection} used to read a file entry directly.
+	 */
+	private static class FileURLConnection extends URLConnection {
+
+		private final File file;
+
+		public FileURLConnection(URL url, File file) {
+			super(url);
+			this.file = file;
+		}
+
+		@Override
+		public void connect() throws IOException {
+			if (!this.file.exists()) {
+				throw new FileNotFoundException(this.file.getPath());
 			}
-			return new FileNotFoundURLConnection(url, name);
+			this.connected = true;
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			connect();
+			return new FileInputStream(this.file);
 		}
+
+		@Override
+		public int getContentLength() {
+			long length = this.file.length();
+			return (length > Integer.MAX_VALUE ? -1 : (int) length);
+		}
+
+		@Override
+		public long getLastModified() {
+			return this.file.lastModified();
+		}
+
+		@Override
+		public String getContentType() {
+			String contentType = guessContentTypeFromName(this.file.getName());
+			return (contentType == null ? "content/unknown" : contentType);
+		}
+
 	}
 
 	/**
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.jar.Manifest;
+
+/**
+ * {@link Archive} implementation for a nested jar that has been extracted to the local
+ * file system. The {@link #getUrl() URL} is a plain {@code file:} URL so that the jar is
+ * read by the JDK rather than a {@link JarFileArchive}. A {@link JarFileArchive} is only
+ * opened if other methods are called.
+ *
+ * @author agent
+ * @see JarFileArchive#getNestedArchive(Archive.Entry, File)
+ */
+class ExtractedJarArchive implements Archive {
+
+	private final File file;
+
+	private JarFileArchive archive;
+
+	public ExtractedJarArchive(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	@Override
+	public URL getUrl() throws MalformedURLException {
+		return this.file.toURI().toURL();
+	}
+
+	@Override
+	public Manifest getManifest() throws IOException {
+		return getArchive().getManifest();
+	}
+
+	@Override
+	public Iterable<Entry> getEntries() {
+		try {
+			return getArchive().getEntries();
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to read " + this.file, ex);
+		}
+	}
+
+	@Override
+	public Iterable<Entry> getEntries(String directory) {
+		try {
+			return getArchive().getEntries(directory);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Unable to read " + this.file, ex);
+		}
+	}
+
+	@Override
+	public Archive getNestedArchive(Entry entry) throws IOException {
+		return getArchive().getNestedArchive(entry);
+	}
+
+	@Override
+	public Archive getFilteredArchive(EntryFilter filter) throws IOException {
+		return getArchive().getFilteredArchive(filter);
+	}
+
+	private synchronized JarFileArchive getArchive() throws IOException {
+		if (this.archive == null) {
+			this.archive = new JarFileArchive(this.file);
+		}
+		return this.archive;
+	}
+
+}
@@ -17,16 +17,25 @@
 package org.springframework.boot.loader;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Enumeration;
-import java.util.List;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.Manifest;
 
+import org.springframework.boot.loader.data.MappedRandomAccessData;
 import org.springframework.boot.loader.jar.JarEntryFilter;
 import org.springframework.boot.loader.jar.RandomAccessJarFile;
 
@@ -37,22 +46,20 @@ import org.springframework.boot.loader.jar.RandomAccessJarFile;
  */
 public class JarFileArchive implements Archive {
 
-	private final RandomAccessJarFile jarFile;
+	private static final int BUFFER_SIZE = 8192;
 
-	private final List<Entry> entries;
+	private final RandomAccessJarFile jarFile;
 
 	public JarFileArchive(File file) throws IOException {
 		this(new RandomAccessJarFile(file));
 	}
 
+	public JarFileArchive(MappedRandomAccessData data) throws IOException {
+		this(new RandomAccessJarFile(data));
+	}
+
 	public JarFileArchive(RandomAccessJarFile jarFile) {
 		this.jarFile = jarFile;
-		ArrayList<Entry> jarFileEntries = new ArrayList<Entry>();
-		Enumeration<JarEntry> entries = jarFile.entries();
-		while (entries.hasMoreElements()) {
-			jarFileEntries.add(new JarFileEntry(entries.nextElement()));
-		}
-		this.entries = Collections.unmodifiableList(jarFileEntries);
 	}
 
 	@Override
@@ -62,7 +69,25 @@ public class JarFileArchive implements Archive {
 
 	@Override
 	public Iterable<Entry> getEntries() {
-		return this.entries;
+		// Entries are created lazily to save creating objects for every JarEntry
+		return new Iterable<Entry>() {
+			@Override
+			public Iterator<Entry> iterator() {
+				return new JarFileEntryIterator(JarFileArchive.this.jarFile.entries(),
+						"");
+			}
+		};
+	}
+
+	@Override
+	public Iterable<Entry> getEntries(final String directory) {
+		return new Iterable<Entry>() {
+			@Override
+			public Iterator<Entry> iterator() {
+				return new JarFileEntryIterator(JarFileArchive.this.jarFile.entries(),
+						directory);
+			}
+		};
 	}
 
 	@Override
@@ -77,6 +102,212 @@ public class JarFileArchive implements Archive {
 		return new JarFileArchive(jarFile);
 	}
 
+	/**
+	 * Returns a nested archive, extracting nested jar entries to the specified directory.
+	 * Extracted files are stored in a sub-directory named using the SHA-256 digest of the
+	 * entry so that they are only extracted once and can be shared by several
+	 * applications. Directories that are created can only be accessed by their owner and
+	 * existing directories are only used if they are owned by the current user and
+	 * cannot be written by others. Previously extracted files are only used once their
+	 * digest has been verified against the entry. Directory entries are not extracted.
+	 * @param entry the entry
+	 * @param directory the root directory used for extracted files
+	 * @return the nested archive
+	 * @throws IOException
+	 */
+	public Archive getNestedArchive(Entry entry, File directory) throws IOException {
+		JarEntry jarEntry = ((JarFileEntry) entry).getJarEntry();
+		if (jarEntry.isDirectory()) {
+			return getNestedArchive(entry);
+		}
+		String digest = getDigest(this.jarFile.getInputStream(jarEntry));
+		File parent = new File(directory, digest);
+		createPrivateDirectory(directory);
+		createPrivateDirectory(parent);
+		String name = jarEntry.getName().substring(jarEntry.getName().lastIndexOf('/') + 1);
+		File file = new File(parent, name);
+		if (!isExtracted(digest, file)) {
+			extract(jarEntry, digest, file);
+		}
+		return new ExtractedJarArchive(file);
+	}
+
+	private boolean isExtracted(String digest, File file) throws IOException {
+		return file.isFile() && digest.equals(getDigest(new FileInputStream(file)));
+	}
+
+	private String getDigest(InputStream inputStream) throws IOException {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int bytesRead;
+			while ((bytesRead = inputStream.read(buffer)) != -1) {
+				digest.update(buffer, 0, bytesRead);
+			}
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+				hex.append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	private void extract(JarEntry jarEntry, String digest, File file) throws IOException {
+		File parent = file.getParentFile();
+		// Extract to a temporary file first so that partially written files are never
+		// used by other processes
+		File tempFile = File.createTempFile(file.getName(), ".tmp", parent);
+		try {
+			setOwnerOnly(tempFile, false);
+			InputStream inputStream = this.jarFile.getInputStream(jarEntry);
+			try {
+				OutputStream outputStream = new FileOutputStream(tempFile);
+				try {
+					byte[] buffer = new byte[BUFFER_SIZE];
+					int bytesRead;
+					while ((bytesRead = inputStream.read(buffer)) != -1) {
+						outputStream.write(buffer, 0, bytesRead);
+					}
+				}
+				finally {
+					outputStream.close();
+				}
+			}
+			finally {
+				inputStream.close();
+			}
+			if (!tempFile.renameTo(file)) {
+				// The file may have been extracted by another process, otherwise it is
+				// invalid and must be replaced
+				if (!isExtracted(digest, file)
+						&& !(file.delete() && tempFile.renameTo(file))) {
+					throw new IOException("Unable to extract " + jarEntry.getName()
+							+ " to " + file);
+				}
+			}
+		}
+		finally {
+			tempFile.delete();
+		}
+	}
+
+	private void createPrivateDirectory(File directory) throws IOException {
+		if (directory.isDirectory()) {
+			checkPrivateDirectory(directory);
+			return;
+		}
+		File parent = directory.getParentFile();
+		if (parent != null && !parent.isDirectory()) {
+			createPrivateDirectory(parent);
+		}
+		if (!directory.mkdir()) {
+			if (!directory.isDirectory()) {
+				throw new IOException("Unable to create directory " + directory);
+			}
+			// Created by another process
+			checkPrivateDirectory(directory);
+			return;
+		}
+		setOwnerOnly(directory, true);
+	}
+
+	/**
+	 * Check that an existing directory is owned by the current user and cannot be
+	 * written by others, since the jars that it contains will be added to the classpath.
+	 * @param directory the directory to check
+	 * @throws IOException if the directory cannot be used
+	 */
+	private void checkPrivateDirectory(File directory) throws IOException {
+		Boolean isPrivate;
+		try {
+			isPrivate = isPrivateDirectory(directory);
+		}
+		catch (Exception ex) {
+			throw new IOException("Unable to check permissions of directory "
+					+ directory + " (" + ex + ")");
+		}
+		if (isPrivate == null) {
+			// Running on Java 6, changing permissions is only possible for the owner
+			isPrivate = setOwnerOnly(directory, true);
+		}
+		if (!isPrivate) {
+			throw new IOException("Directory " + directory
+					+ " must be owned by the current user and not be writable by others");
+		}
+	}
+
+	/**
+	 * Determine if the directory is private using the {@code java.nio.file} API.
+	 * @param directory the directory
+	 * @return if the directory is private or {@code null} if the API is not available
+	 * @throws Exception
+	 */
+	private Boolean isPrivateDirectory(File directory) throws Exception {
+		Class<?> filesClass;
+		try {
+			filesClass = Class.forName("java.nio.file.Files");
+		}
+		catch (ClassNotFoundException ex) {
+			return null;
+		}
+		Class<?> pathClass = Class.forName("java.nio.file.Path");
+		Class<?> linkOptionClass = Class.forName("java.nio.file.LinkOption");
+		Object path = File.class.getMethod("toPath").invoke(directory);
+		Object noLinkOptions = Array.newInstance(linkOptionClass, 0);
+		Object owner = filesClass.getMethod("getOwner", pathClass,
+				noLinkOptions.getClass()).invoke(null, path, noLinkOptions);
+		Object fileSystem = Class.forName("java.nio.file.FileSystems")
+				.getMethod("getDefault").invoke(null);
+		Object lookupService = Class.forName("java.nio.file.FileSystem")
+				.getMethod("getUserPrincipalLookupService").invoke(fileSystem);
+		Object user = Class
+				.forName("java.nio.file.attribute.UserPrincipalLookupService")
+				.getMethod("lookupPrincipalByName", String.class)
+				.invoke(lookupService, System.getProperty("user.name"));
+		if (!owner.equals(user)) {
+			return false;
+		}
+		Set<?> permissions;
+		try {
+			permissions = (Set<?>) filesClass.getMethod("getPosixFilePermissions",
+					pathClass, noLinkOptions.getClass()).invoke(null, path,
+					noLinkOptions);
+		}
+		catch (InvocationTargetException ex) {
+			if (ex.getTargetException() instanceof UnsupportedOperationException) {
+				// Not a POSIX file system, only the owner can be checked
+				return true;
+			}
+			throw ex;
+		}
+		for (Object permission : permissions) {
+			String name = permission.toString();
+			if (name.equals("GROUP_WRITE") || name.equals("OTHERS_WRITE")) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean setOwnerOnly(File file, boolean executable) {
+		boolean result = file.setReadable(false, false);
+		result &= file.setReadable(true, true);
+		result &= file.setWritable(false, false);
+		result &= file.setWritable(true, true);
+		result &= file.setExecutable(false, false);
+		if (executable) {
+			result &= file.setExecutable(true, true);
+		}
+		return result;
+	}
+
 	@Override
 	public Archive getFilteredArchive(final EntryFilter filter) throws IOException {
 		RandomAccessJarFile filteredJar = this.jarFile
@@ -89,6 +320,58 @@ public class JarFileArchive implements Archive {
 		return new JarFileArchive(filteredJar);
 	}
 
+	/**
+	 * {@link Iterator} adapting {@link JarEntry} enumeration to {@link Archive.Entry}
+	 * elements, optionally limited to the entries within a directory.
+	 */
+	private static class JarFileEntryIterator implements Iterator<Entry> {
+
+		private final Enumeration<JarEntry> enumeration;
+
+		private final String directory;
+
+		private JarEntry next;
+
+		public JarFileEntryIterator(Enumeration<JarEntry> enumeration, String directory) {
+			this.enumeration = enumeration;
+			this.directory = directory;
+			this.next = poll();
+		}
+
+		private JarEntry poll() {
+			while (this.enumeration.hasMoreElements()) {
+				JarEntry entry = this.enumeration.nextElement();
+				String name = entry.getName();
+				if (name.startsWith(this.directory)
+						&& name.length() > this.directory.length()) {
+					return entry;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next != null;
+		}
+
+		@Override
+		public Entry next() {
+			if (this.next == null) {
+				throw new NoSuchElementException();
+			}
+			Entry entry = new JarFileEntry(this.next);
+			this.next = poll();
+			return entry;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("remove");
+		}
+
+	}
+
 	/**
 	 * {@link Archive.Entry} implementation backed by a {@link JarEntry}.
 	 */
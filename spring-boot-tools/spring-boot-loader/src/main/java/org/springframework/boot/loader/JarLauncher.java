@@ -31,6 +31,11 @@ public class JarLauncher extends Launcher {
 		return !entry.isDirectory() && entry.getName().startsWith("lib/");
 	}
 
+	@Override
+	protected String getNestedArchiveDirectory() {
+		return "lib/";
+	}
+
 	@Override
 	protected void postProcessLib(Archive archive, List<Archive> lib) throws Exception {
 		lib.add(0, archive);
@@ -16,32 +16,216 @@
 
 package org.springframework.boot.loader;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.JarURLConnection;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.net.URLConnection;
 import java.security.AccessController;
+import java.security.CodeSigner;
+import java.security.CodeSource;
 import java.security.PrivilegedExceptionAction;
-
-import org.springframework.boot.loader.jar.RandomAccessJarFile;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 /**
- * {@link ClassLoader} used by the {@link Launcher}.
+ * {@link ClassLoader} used by the {@link Launcher}. If a {@link PackageIndex} is
+ * available class and resource lookups are sent directly to the archives that contain
+ * the relevant package rather than searching every URL. When running on Java 7 or later
+ * the class loader is registered as parallel capable.
  * 
  * @author Phillip Webb
  */
 public class LaunchedURLClassLoader extends URLClassLoader {
 
+	private static final int BUFFER_SIZE = 4096;
+
+	/**
+	 * System property that can be used to set the maximum number of missing class and
+	 * resource names that are cached. Set to {@code 0} to disable the cache.
+	 */
+	public static final String NEGATIVE_CACHE_SIZE_PROPERTY = "loader.negativeCacheSize";
+
+	private static final int DEFAULT_NEGATIVE_CACHE_SIZE = 10000;
+
+	/**
+	 * System property that can be used to set the maximum number of bytes of prefetched
+	 * classes that are retained until they are defined. Defaults to 32MB.
+	 */
+	public static final String PREFETCH_LIMIT_PROPERTY = "loader.trace.prefetchLimit";
+
+	private static final int DEFAULT_PREFETCH_LIMIT = 32 * 1024 * 1024;
+
+	static {
+		registerAsParallelCapable(ClassLoader.class);
+	}
+
+	private final PackageIndex packageIndex;
+
+	private final URL[] urls;
+
+	private final ResourceFinder[] finders;
+
+	private final NegativeLookupCache missingClasses;
+
+	private final NegativeLookupCache missingResources;
+
+	private final int[] allCandidates;
+
+	private final ConcurrentMap<String, ResourceData> prefetchedClasses = new ConcurrentHashMap<String, ResourceData>();
+
+	private final long prefetchLimit;
+
+	private final AtomicLong prefetchedBytes = new AtomicLong();
+
+	private volatile boolean prefetchRetained = true;
+
+	private volatile ClassLoadingRecorder recorder;
+
 	/**
 	 * Create a new {@link LaunchedURLClassLoader} instance.
 	 * @param urls the URLs from which to load classes and resources
 	 * @param parent the parent class loader for delegation
 	 */
 	public LaunchedURLClassLoader(URL[] urls, ClassLoader parent) {
+		this(urls, parent, null);
+	}
+
+	/**
+	 * Create a new {@link LaunchedURLClassLoader} instance.
+	 * @param urls the URLs from which to load classes and resources
+	 * @param parent the parent class loader for delegation
+	 * @param packageIndex an optional package index bound to the specified URLs
+	 */
+	public LaunchedURLClassLoader(URL[] urls, ClassLoader parent,
+			PackageIndex packageIndex) {
 		super(urls, parent);
+		if (packageIndex != null && packageIndex.getSize() != urls.length) {
+			throw new IllegalArgumentException("PackageIndex must be bound to the URLs");
+		}
+		this.packageIndex = packageIndex;
+		this.urls = urls.clone();
+		this.finders = new ResourceFinder[urls.length];
+		this.allCandidates = new int[urls.length];
+		for (int i = 0; i < urls.length; i++) {
+			this.finders[i] = new ResourceFinder(urls[i]);
+			this.allCandidates[i] = i;
+		}
+		this.prefetchLimit = Long.getLong(PREFETCH_LIMIT_PROPERTY,
+				DEFAULT_PREFETCH_LIMIT);
+		int negativeCacheSize = Integer.getInteger(NEGATIVE_CACHE_SIZE_PROPERTY,
+				DEFAULT_NEGATIVE_CACHE_SIZE);
+		this.missingClasses = new NegativeLookupCache(negativeCacheSize);
+		this.missingResources = new NegativeLookupCache(negativeCacheSize);
+	}
+
+	/**
+	 * Returns the cache of class names that could not be found.
+	 * @return the missing class cache
+	 */
+	public NegativeLookupCache getMissingClasses() {
+		return this.missingClasses;
+	}
+
+	/**
+	 * Returns the cache of resource names that could not be found.
+	 * @return the missing resource cache
+	 */
+	public NegativeLookupCache getMissingResources() {
+		return this.missingResources;
+	}
+
+	/**
+	 * Set a {@link ClassLoadingRecorder} that should be informed of the classes and
+	 * resources that are loaded.
+	 * @param recorder the recorder or {@code null}
+	 */
+	public void setRecorder(ClassLoadingRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	@Override
+	protected void addURL(URL url) {
+		super.addURL(url);
+		this.missingClasses.clear();
+		this.missingResources.clear();
+	}
+
+	@Override
+	public URL findResource(String name) {
+		if (this.missingResources.contains(name)) {
+			return null;
+		}
+		URL url = doFindResource(name);
+		if (url == null) {
+			this.missingResources.add(name);
+		}
+		else if (this.recorder != null) {
+			this.recorder.resourceFound(name);
+		}
+		return url;
+	}
+
+	private URL doFindResource(String name) {
+		if (this.packageIndex == null) {
+			return super.findResource(name);
+		}
+		for (int candidate : this.packageIndex.getCandidates(name)) {
+			URL url = this.finders[candidate].findResource(name);
+			if (url != null) {
+				return url;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Enumeration<URL> findResources(String name) throws IOException {
+		if (this.packageIndex == null) {
+			return super.findResources(name);
+		}
+		Vector<URL> resources = new Vector<URL>();
+		for (int candidate : this.packageIndex.getCandidates(name)) {
+			resources.addAll(Collections.list(this.finders[candidate]
+					.findResources(name)));
+		}
+		return resources.elements();
 	}
 
 	@Override
 	protected Class<?> findClass(final String name) throws ClassNotFoundException {
+		if (this.missingClasses.contains(name)) {
+			throw new ClassNotFoundException(name);
+		}
+		try {
+			Class<?> type = doFindClass(name);
+			if (this.recorder != null) {
+				this.recorder.classLoaded(name);
+			}
+			return type;
+		}
+		catch (ClassNotFoundException ex) {
+			this.missingClasses.add(name);
+			throw ex;
+		}
+	}
+
+	private Class<?> doFindClass(final String name) throws ClassNotFoundException {
 		int lastDot = name.lastIndexOf('.');
 		if (lastDot != -1) {
 			String packageName = name.substring(0, lastDot);
@@ -54,7 +238,138 @@ public class LaunchedURLClassLoader extends URLClassLoader {
 				}
 			}
 		}
-		return super.findClass(name);
+		if (this.packageIndex == null) {
+			LauncherStatistics statistics = LauncherStatistics.get();
+			long startTime = (statistics.isEnabled() ? System.nanoTime() : 0);
+			Class<?> type = super.findClass(name);
+			if (statistics.isEnabled()) {
+				statistics.classDefined(System.nanoTime() - startTime);
+			}
+			return type;
+		}
+		return findIndexedClass(name);
+	}
+
+	private Class<?> findIndexedClass(String name) throws ClassNotFoundException {
+		String path = name.replace('.', '/').concat(".class");
+		ResourceData resource = this.prefetchedClasses.remove(path);
+		if (resource != null) {
+			this.prefetchedBytes.addAndGet(-resource.getBytes().length);
+		}
+		try {
+			if (resource == null) {
+				resource = getResourceData(path);
+			}
+		}
+		catch (IOException ex) {
+			throw new ClassNotFoundException(name, ex);
+		}
+		if (resource == null) {
+			throw new ClassNotFoundException(name);
+		}
+		byte[] bytes = resource.getBytes();
+		LauncherStatistics statistics = LauncherStatistics.get();
+		long startTime = (statistics.isEnabled() ? System.nanoTime() : 0);
+		Class<?> type = defineClass(name, bytes, 0, bytes.length,
+				resource.getCodeSource());
+		if (statistics.isEnabled()) {
+			statistics.classDefined(System.nanoTime() - startTime);
+		}
+		return type;
+	}
+
+	private ResourceData getResourceData(String path) throws IOException {
+		int[] candidates = (this.packageIndex == null ? this.allCandidates
+				: this.packageIndex.getCandidates(path));
+		for (int candidate : candidates) {
+			ResourceData resource = this.finders[candidate].getResourceData(path);
+			if (resource != null) {
+				return resource;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Prefetch the named class or resource so that the data is available when it is
+	 * later requested. Entries are read directly from the archives, bypassing the
+	 * negative caches and any {@link ClassLoadingRecorder}. When a {@link PackageIndex}
+	 * is available the bytes of classes are retained until the class is defined (or
+	 * {@link #clearPrefetched() cleared}), up to a total of
+	 * {@link #PREFETCH_LIMIT_PROPERTY a limit}, otherwise entries are simply read.
+	 * @param name the resource name (classes are named using their {@code .class}
+	 * resource)
+	 * @throws IOException
+	 */
+	void prefetch(String name) throws IOException {
+		boolean retain = (this.packageIndex != null && this.prefetchRetained && name
+				.endsWith(".class"));
+		if (retain) {
+			String className = name.substring(0, name.length() - 6).replace('/', '.');
+			if (findLoadedClass(className) != null) {
+				return;
+			}
+		}
+		ResourceData resource = getResourceData(name);
+		if (retain && resource != null) {
+			int size = resource.getBytes().length;
+			if (this.prefetchedBytes.addAndGet(size) > this.prefetchLimit
+					|| this.prefetchedClasses.putIfAbsent(name, resource) != null) {
+				this.prefetchedBytes.addAndGet(-size);
+			}
+		}
+	}
+
+	/**
+	 * Discard any prefetched classes that have not yet been defined and stop retaining
+	 * classes that are prefetched later.
+	 */
+	void clearPrefetched() {
+		this.prefetchRetained = false;
+		this.prefetchedClasses.clear();
+		this.prefetchedBytes.set(0);
+	}
+
+	/**
+	 * Returns the number of bytes of prefetched classes that are currently retained.
+	 * @return the retained bytes
+	 */
+	long getPrefetchedBytes() {
+		return this.prefetchedBytes.get();
+	}
+
+	private static byte[] getBytes(InputStream inputStream) throws IOException {
+		try {
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int bytesRead = -1;
+			while ((bytesRead = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, bytesRead);
+			}
+			return outputStream.toByteArray();
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Define a package, tolerating the package having already been defined by another
+	 * thread.
+	 * @param name the package name
+	 * @param manifest the manifest
+	 * @param url the code source URL
+	 */
+	private void definePackageIfNecessary(String name, Manifest manifest, URL url) {
+		try {
+			definePackage(name, manifest, url);
+		}
+		catch (IllegalArgumentException ex) {
+			// Parallel loading of two classes in the same package
+			if (getPackage(name) == null) {
+				throw ex;
+			}
+		}
 	}
 
 	/**
@@ -69,16 +384,14 @@ public class LaunchedURLClassLoader extends URLClassLoader {
 			AccessController.doPrivileged(new PrivilegedExceptionAction<Object>() {
 				public Object run() throws ClassNotFoundException {
 					String path = name.replace('.', '/').concat(".class");
-					for (URL url : getURLs()) {
+					for (URL url : getCandidateUrls(path)) {
 						try {
-							if (url.getContent() instanceof RandomAccessJarFile) {
-								RandomAccessJarFile jarFile = (RandomAccessJarFile) url
-										.getContent();
-								if (jarFile.getManifest() != null
-										&& jarFile.getJarEntry(path) != null) {
-									definePackage(packageName, jarFile.getManifest(), url);
-									return null;
-								}
+							JarFile jarFile = getJarFile(url);
+							if (jarFile != null && jarFile.getManifest() != null
+									&& jarFile.getJarEntry(path) != null) {
+								definePackageIfNecessary(packageName,
+										jarFile.getManifest(), url);
+								return null;
 							}
 						}
 						catch (IOException e) {
@@ -91,4 +404,194 @@ public class LaunchedURLClassLoader extends URLClassLoader {
 		catch (java.security.PrivilegedActionException pae) {
 		}
 	}
+
+	private URL[] getCandidateUrls(String path) {
+		if (this.packageIndex == null) {
+			return getURLs();
+		}
+		int[] candidates = this.packageIndex.getCandidates(path);
+		URL[] urls = new URL[candidates.length];
+		for (int i = 0; i < candidates.length; i++) {
+			urls[i] = this.urls[candidates[i]];
+		}
+		return urls;
+	}
+
+	/**
+	 * Return the {@link JarFile} for the specified classpath URL. Nested jars are
+	 * returned directly by their {@link JarURLConnection}, jars on the file system are
+	 * obtained from a (cached) {@code jar:} connection so that they are not opened
+	 * again.
+	 * @param url the classpath URL
+	 * @return the jar file or {@code null} if the URL is a directory
+	 * @throws IOException
+	 */
+	private static JarFile getJarFile(URL url) throws IOException {
+		if (url.getPath().endsWith("/") && !"jar".equals(url.getProtocol())) {
+			return null;
+		}
+		URLConnection connection = getJarUrl(url).openConnection();
+		if (connection instanceof JarURLConnection) {
+			return ((JarURLConnection) connection).getJarFile();
+		}
+		return null;
+	}
+
+	private static URL getJarUrl(URL url) throws MalformedURLException {
+		if ("jar".equals(url.getProtocol())) {
+			return url;
+		}
+		return new URL("jar:" + url + "!/");
+	}
+
+	/**
+	 * Register the class loader as parallel capable when running on Java 7 or later so
+	 * that the JVM uses per-class-name locks rather than locking the class loader
+	 * instance. The method is called reflectively so that Java 6 is still supported.
+	 * @param type the type that declares the {@code registerAsParallelCapable} method
+	 * @return {@code true} if the class loader was registered
+	 */
+	static boolean registerAsParallelCapable(Class<? extends ClassLoader> type) {
+		try {
+			Method method = type.getDeclaredMethod("registerAsParallelCapable");
+			return Boolean.TRUE.equals(method.invoke(null));
+		}
+		catch (NoSuchMethodException ex) {
+			// Running on Java 6
+			return false;
+		}
+		catch (Exception ex) {
+			// Ignore and continue with a single lock
+			return false;
+		}
+	}
+
+	/**
+	 * The bytes of a class or resource along with its {@link CodeSource}.
+	 */
+	private static class ResourceData {
+
+		private final CodeSource codeSource;
+
+		private final byte[] bytes;
+
+		public ResourceData(CodeSource codeSource, byte[] bytes) {
+			this.codeSource = codeSource;
+			this.bytes = bytes;
+		}
+
+		public CodeSource getCodeSource() {
+			return this.codeSource;
+		}
+
+		public byte[] getBytes() {
+			return this.bytes;
+		}
+
+	}
+
+	/**
+	 * Finds resources in a single classpath URL. Entries are read directly from the jar
+	 * file (or directory) so that, unlike a {@link URLClassLoader}, no additional
+	 * resources are held open.
+	 */
+	private static class ResourceFinder {
+
+		private final URL url;
+
+		private volatile boolean initialized;
+
+		private JarFile jarFile;
+
+		private URL baseUrl;
+
+		private File directory;
+
+		public ResourceFinder(URL url) {
+			this.url = url;
+		}
+
+		private synchronized void initialize() throws IOException {
+			if (this.initialized) {
+				return;
+			}
+			if ("file".equals(this.url.getProtocol()) && this.url.getPath().endsWith("/")) {
+				this.directory = getDirectory(this.url);
+				this.baseUrl = this.url;
+			}
+			else {
+				this.jarFile = getJarFile(this.url);
+				this.baseUrl = getJarUrl(this.url);
+			}
+			this.initialized = true;
+		}
+
+		private File getDirectory(URL url) {
+			try {
+				return new File(url.toURI());
+			}
+			catch (URISyntaxException ex) {
+				// URLs from an ExplodedArchive are not encoded so may contain spaces
+				return new File(url.getPath());
+			}
+		}
+
+		public URL findResource(String name) {
+			try {
+				initialize();
+				URL resource = new URL(this.baseUrl, encode(name));
+				if (this.jarFile != null) {
+					return (this.jarFile.getJarEntry(name) == null ? null : resource);
+				}
+				if (this.directory != null
+						&& resource.getFile().startsWith(this.baseUrl.getFile())
+						&& new File(this.directory, name).exists()) {
+					return resource;
+				}
+			}
+			catch (IOException ex) {
+				// Treat as missing
+			}
+			catch (URISyntaxException ex) {
+				// Treat as missing
+			}
+			return null;
+		}
+
+		public Enumeration<URL> findResources(String name) {
+			URL resource = findResource(name);
+			if (resource == null) {
+				return Collections.enumeration(Collections.<URL> emptyList());
+			}
+			return Collections.enumeration(Collections.singletonList(resource));
+		}
+
+		public ResourceData getResourceData(String name) throws IOException {
+			initialize();
+			if (this.jarFile != null) {
+				JarEntry entry = this.jarFile.getJarEntry(name);
+				if (entry == null) {
+					return null;
+				}
+				byte[] bytes = getBytes(this.jarFile.getInputStream(entry));
+				// Signers are only available once the entry has been read
+				return new ResourceData(new CodeSource(this.url,
+						entry.getCodeSigners()), bytes);
+			}
+			if (this.directory != null && findResource(name) != null) {
+				File file = new File(this.directory, name);
+				if (file.isFile()) {
+					return new ResourceData(new CodeSource(this.url,
+							(CodeSigner[]) null), getBytes(new FileInputStream(file)));
+				}
+			}
+			return null;
+		}
+
+		private String encode(String name) throws URISyntaxException {
+			return new URI(null, null, name, null).getRawPath();
+		}
+
+	}
+
 }
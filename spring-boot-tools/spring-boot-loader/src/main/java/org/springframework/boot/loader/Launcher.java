@@ -22,10 +22,22 @@ import java.net.URL;
 import java.security.CodeSource;
 import java.security.ProtectionDomain;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
+import java.util.jar.Manifest;
 import java.util.logging.Logger;
 
+import org.springframework.boot.loader.data.MappedRandomAccessData;
+
 /**
  * Base class for launchers that can start an application with a fully configured
  * classpath.
@@ -36,6 +48,10 @@ public abstract class Launcher {
 
 	private Logger logger = Logger.getLogger(Launcher.class.getName());
 
+	private PackageIndex packageIndex;
+
+	private final LauncherStatistics statistics = LauncherStatistics.get();
+
 	/**
 	 * The main runner class. This must be loaded by the created ClassLoader so cannot be
 	 * directly referenced.
@@ -43,6 +59,67 @@ public abstract class Launcher {
 	private static final String RUNNER_CLASS = Launcher.class.getPackage().getName()
 			+ ".MainMethodRunner";
 
+	/**
+	 * System property that can be set to {@code true} to memory map the root archive
+	 * rather than reading it through a pool of file handles. Files larger than 2GB are
+	 * never mapped.
+	 */
+	public static final String MAPPED_PROPERTY = "loader.mapped";
+
+	/**
+	 * System property that can be used to set the number of threads used to open nested
+	 * archives and prefetch classes. Set to {@code 1} to open archives sequentially.
+	 */
+	public static final String THREADS_PROPERTY = "loader.threads";
+
+	private static final int MAX_DEFAULT_THREADS = 4;
+
+	/**
+	 * System property that can be set to the location of a file that the classes and
+	 * resources loaded during startup should be recorded to.
+	 * @see ClassLoadingRecorder
+	 * @see #TRACE_DURATION_PROPERTY
+	 */
+	public static final String TRACE_RECORD_PROPERTY = "loader.trace.record";
+
+	/**
+	 * System property that can be used to set the number of seconds that a trace is
+	 * recorded for, or that classes prefetched from a replayed trace are retained.
+	 * Defaults to 30 seconds.
+	 */
+	public static final String TRACE_DURATION_PROPERTY = "loader.trace.duration";
+
+	private static final int DEFAULT_TRACE_DURATION = 30;
+
+	/**
+	 * System property that can be set to the location of a previously recorded trace
+	 * file. Classes and resources in the trace are prefetched using background threads.
+	 * @see ClassLoadingPrefetcher
+	 */
+	public static final String TRACE_REPLAY_PROPERTY = "loader.trace.replay";
+
+	/**
+	 * System property that can be set to {@code true} to extract nested jars to a local
+	 * cache directory so that they can be read directly by the JDK. The same option can
+	 * also be enabled using a {@link #EXTRACT_ATTRIBUTE manifest attribute}.
+	 * @see #EXTRACT_DIRECTORY_PROPERTY
+	 */
+	public static final String EXTRACT_PROPERTY = "loader.extract";
+
+	/**
+	 * Manifest attribute that can be set to {@code true} to extract nested jars.
+	 * @see #EXTRACT_PROPERTY
+	 */
+	public static final String EXTRACT_ATTRIBUTE = "Spring-Boot-Extract";
+
+	/**
+	 * System property that can be used to set the directory that nested jars are
+	 * extracted to. Defaults to {@code .spring-boot/libs} in {@code user.home}. Directories
+	 * that are created can only be accessed by their owner, existing directories must be
+	 * owned by the current user and must not be writable by others.
+	 */
+	public static final String EXTRACT_DIRECTORY_PROPERTY = "loader.extract.directory";
+
 	/**
 	 * Launch the application. This method is the initial entry point that should be
 	 * called by a subclass {@code public static void main(String[] args)} method.
@@ -78,11 +155,28 @@ public abstract class Launcher {
 			throw new IllegalStateException(
 					"Unable to determine code source archive from " + root);
 		}
+		long startTime = System.nanoTime();
 		Archive archive = (root.isDirectory() ? new ExplodedArchive(root)
-				: new JarFileArchive(root));
+				: createJarFileArchive(root));
+		this.statistics.rootArchiveOpened(System.nanoTime() - startTime);
 		launch(args, archive);
 	}
 
+	/**
+	 * Create the {@link Archive} for a root jar file.
+	 * @param root the root jar file
+	 * @return the archive
+	 * @throws Exception
+	 * @see #MAPPED_PROPERTY
+	 */
+	protected Archive createJarFileArchive(File root) throws Exception {
+		// Mapped data is limited to 2GB, larger files are read using a channel
+		if (Boolean.getBoolean(MAPPED_PROPERTY) && root.length() <= Integer.MAX_VALUE) {
+			return new JarFileArchive(new MappedRandomAccessData(root));
+		}
+		return new JarFileArchive(root);
+	}
+
 	/**
 	 * Launch the application given the archive file
 	 * @param args the incoming arguments
@@ -90,20 +184,186 @@ public abstract class Launcher {
 	 * @throws Exception
 	 */
 	protected void launch(String[] args, Archive archive) throws Exception {
-		List<Archive> lib = new ArrayList<Archive>();
-		for (Archive.Entry entry : archive.getEntries()) {
+		if (this.statistics.isEnabled()) {
+			this.statistics.writeOnExit();
+		}
+		List<Archive.Entry> nestedEntries = new ArrayList<Archive.Entry>();
+		for (Archive.Entry entry : archive.getEntries(getNestedArchiveDirectory())) {
 			if (isNestedArchive(entry)) {
 				this.logger.fine("Adding: " + entry.getName());
-				lib.add(archive.getNestedArchive(entry));
+				nestedEntries.add(entry);
 			}
 		}
+		List<Archive> lib = getNestedArchives(archive, nestedEntries);
+		Map<Archive, String> names = new HashMap<Archive, String>();
+		for (int i = 0; i < lib.size(); i++) {
+			names.put(lib.get(i), nestedEntries.get(i).getName());
+		}
 
 		this.logger.fine("Added " + lib.size() + " entries");
 		postProcessLib(archive, lib);
+		long startTime = System.nanoTime();
+		this.packageIndex = PackageIndex.load(archive);
+		this.statistics.packageIndexLoaded(System.nanoTime() - startTime);
+		if (this.packageIndex != null) {
+			List<String> libNames = new ArrayList<String>();
+			for (Archive libArchive : lib) {
+				libNames.add(names.get(libArchive));
+			}
+			this.packageIndex.bind(libNames);
+			this.logger.fine("Using package index");
+		}
 		ClassLoader classLoader = createClassLoader(lib);
+		if (classLoader instanceof LaunchedURLClassLoader) {
+			this.statistics.setClassLoader((LaunchedURLClassLoader) classLoader);
+			traceClassLoading((LaunchedURLClassLoader) classLoader);
+		}
 		launch(args, archive, classLoader);
 	}
 
+	/**
+	 * Record or replay class loading if the relevant system properties have been set.
+	 * @param classLoader the class loader
+	 * @throws Exception
+	 * @see #TRACE_RECORD_PROPERTY
+	 * @see #TRACE_REPLAY_PROPERTY
+	 */
+	private void traceClassLoading(LaunchedURLClassLoader classLoader) throws Exception {
+		String replay = System.getProperty(TRACE_REPLAY_PROPERTY);
+		long duration = Integer.getInteger(TRACE_DURATION_PROPERTY,
+				DEFAULT_TRACE_DURATION) * 1000L;
+		if (replay != null && new File(replay).exists()) {
+			this.logger.fine("Prefetching classes from " + replay);
+			ClassLoadingPrefetcher.load(new File(replay)).start(classLoader,
+					getThreads(), duration);
+		}
+		String record = System.getProperty(TRACE_RECORD_PROPERTY);
+		if (record != null) {
+			this.logger.fine("Recording classes to " + record);
+			ClassLoadingRecorder recorder = new ClassLoadingRecorder(new File(record),
+					duration);
+			classLoader.setRecorder(recorder);
+			recorder.start();
+		}
+	}
+
+	/**
+	 * Open the nested archives for the specified entries, using several threads when
+	 * there is more than one entry.
+	 * @param archive the root archive
+	 * @param entries the nested entries
+	 * @return the nested archives in the same order as the entries
+	 * @throws Exception
+	 * @see #THREADS_PROPERTY
+	 */
+	List<Archive> getNestedArchives(final Archive archive,
+			List<Archive.Entry> entries) throws Exception {
+		final File extractDirectory = getExtractDirectory(archive);
+		List<Archive> archives = new ArrayList<Archive>(entries.size());
+		int threads = Math.min(entries.size(), getThreads());
+		if (threads <= 1) {
+			for (Archive.Entry entry : entries) {
+				archives.add(openNestedArchive(archive, entry, extractDirectory));
+			}
+			return archives;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new DaemonThreadFactory());
+		try {
+			List<Future<Archive>> futures = new ArrayList<Future<Archive>>();
+			for (final Archive.Entry entry : entries) {
+				futures.add(executor.submit(new Callable<Archive>() {
+					@Override
+					public Archive call() throws Exception {
+						return openNestedArchive(archive, entry, extractDirectory);
+					}
+				}));
+			}
+			for (Future<Archive> future : futures) {
+				archives.add(getResult(future));
+			}
+			return archives;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Archive openNestedArchive(Archive archive, Archive.Entry entry,
+			File extractDirectory) throws Exception {
+		long startTime = System.nanoTime();
+		Archive nestedArchive = getNestedArchive(archive, entry, extractDirectory);
+		this.statistics.nestedArchiveOpened(entry.getName(), System.nanoTime()
+				- startTime);
+		return nestedArchive;
+	}
+
+	private int getThreads() {
+		return Integer.getInteger(THREADS_PROPERTY,
+				Math.min(Runtime.getRuntime().availableProcessors(), MAX_DEFAULT_THREADS));
+	}
+
+	private Archive getResult(Future<Archive> future) throws Exception {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw ex;
+		}
+	}
+
+	/**
+	 * Return the directory that nested jars should be extracted to or {@code null} if
+	 * nested jars should be read directly from the archive.
+	 * @param archive the root archive
+	 * @return the extract directory or {@code null}
+	 * @throws Exception
+	 * @see #EXTRACT_PROPERTY
+	 */
+	protected File getExtractDirectory(Archive archive) throws Exception {
+		if (!(archive instanceof JarFileArchive)) {
+			return null;
+		}
+		boolean extract = Boolean.getBoolean(EXTRACT_PROPERTY);
+		if (!extract) {
+			Manifest manifest = archive.getManifest();
+			extract = (manifest != null && "true".equalsIgnoreCase(manifest
+					.getMainAttributes().getValue(EXTRACT_ATTRIBUTE)));
+		}
+		if (!extract) {
+			return null;
+		}
+		String directory = System.getProperty(EXTRACT_DIRECTORY_PROPERTY);
+		if (directory == null) {
+			return new File(new File(System.getProperty("user.home"), ".spring-boot"),
+					"libs");
+		}
+		return new File(directory);
+	}
+
+	/**
+	 * Return the nested archive for the specified entry.
+	 * @param archive the root archive
+	 * @param entry the nested entry
+	 * @param extractDirectory the directory used to extract nested jars or {@code null}
+	 * @return the nested archive
+	 * @throws Exception
+	 */
+	protected Archive getNestedArchive(Archive archive, Archive.Entry entry,
+			File extractDirectory) throws Exception {
+		if (extractDirectory != null) {
+			return ((JarFileArchive) archive).getNestedArchive(entry, extractDirectory);
+		}
+		return archive.getNestedArchive(entry);
+	}
+
 	/**
 	 * Determine if the specified {@link JarEntry} is a nested item that should be added
 	 * to the classpath. The method is called once for each entry.
@@ -112,6 +372,17 @@ public abstract class Launcher {
 	 */
 	protected abstract boolean isNestedArchive(Archive.Entry jarEntry);
 
+	/**
+	 * Return the directory of the archive that contains the nested items. Only entries
+	 * within the directory are passed to {@link #isNestedArchive(Archive.Entry)} so that
+	 * unrelated parts of the archive (for example static resources in an exploded
+	 * archive) need not be listed. By default the whole archive is searched.
+	 * @return the directory name ending with '/' or an empty string
+	 */
+	protected String getNestedArchiveDirectory() {
+		return "";
+	}
+
 	/**
 	 * Called to post-process lib entries before they are used. Implementations can add
 	 * and remove entries.
@@ -143,7 +414,12 @@ public abstract class Launcher {
 	 * @throws Exception
 	 */
 	protected ClassLoader createClassLoader(URL[] urls) throws Exception {
-		return new LaunchedURLClassLoader(urls, getClass().getClassLoader().getParent());
+		PackageIndex packageIndex = this.packageIndex;
+		if (packageIndex != null && packageIndex.getSize() != urls.length) {
+			packageIndex = null;
+		}
+		return new LaunchedURLClassLoader(urls, getClass().getClassLoader().getParent(),
+				packageIndex);
 	}
 
 	/**
@@ -195,4 +471,21 @@ public abstract class Launcher {
 		return (Runnable) constructor.newInstance(mainClass, args);
 	}
 
+	/**
+	 * {@link ThreadFactory} used to create daemon threads for opening nested archives.
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "loader-"
+					+ this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
 }
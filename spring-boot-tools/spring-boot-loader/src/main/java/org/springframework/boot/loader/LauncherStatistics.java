@@ -0,0 +1,286 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.boot.loader.jar.RandomAccessJarFile;
+
+/**
+ * Statistics collected by the {@link Launcher} and {@link LaunchedURLClassLoader} that
+ * show where launch time is spent. Statistics are only collected when the
+ * {@link #STATISTICS_PROPERTY} system property is set, in which case they are written
+ * when the JVM exits (to {@code System.err} or to the file specified by
+ * {@link #STATISTICS_FILE_PROPERTY}).
+ *
+ * @author agent
+ */
+public class LauncherStatistics {
+
+	/**
+	 * System property that can be set to {@code true} to collect statistics.
+	 */
+	public static final String STATISTICS_PROPERTY = "loader.statistics";
+
+	/**
+	 * System property that can be used to set the file that statistics are written to.
+	 */
+	public static final String STATISTICS_FILE_PROPERTY = "loader.statistics.file";
+
+	private static final int SLOWEST_NESTED_ARCHIVES = 10;
+
+	private static final long[] BUCKET_LIMITS = { 10, 100, 1000, 10000, 100000,
+			Long.MAX_VALUE };
+
+	private static final String[] BUCKET_NAMES = { "<10us", "<100us", "<1ms", "<10ms",
+			"<100ms", ">=100ms" };
+
+	private static final LauncherStatistics INSTANCE = new LauncherStatistics(
+			Boolean.getBoolean(STATISTICS_PROPERTY));
+
+	static {
+		RandomAccessJarFile.setStatisticsEnabled(INSTANCE.isEnabled());
+	}
+
+	private final boolean enabled;
+
+	private final AtomicLong rootArchiveTime = new AtomicLong();
+
+	private final AtomicLong nestedArchivesTime = new AtomicLong();
+
+	private final Queue<Timing> nestedArchiveTimings = new ConcurrentLinkedQueue<Timing>();
+
+	private final AtomicLong packageIndexTime = new AtomicLong();
+
+	private final AtomicLong classesDefined = new AtomicLong();
+
+	private final AtomicLong classDefineTime = new AtomicLong();
+
+	private final AtomicLongArray classDefineHistogram = new AtomicLongArray(
+			BUCKET_LIMITS.length);
+
+	private volatile LaunchedURLClassLoader classLoader;
+
+	LauncherStatistics(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Returns {@code true} if statistics are being collected.
+	 * @return if statistics are enabled
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Record the time taken to open the root archive. Calls are ignored when statistics
+	 * are not {@link #isEnabled() enabled}.
+	 * @param nanos the time in nanoseconds
+	 */
+	public void rootArchiveOpened(long nanos) {
+		if (this.enabled) {
+			this.rootArchiveTime.addAndGet(nanos);
+		}
+	}
+
+	/**
+	 * Record the time taken to open a nested archive.
+	 * @param name the name of the nested archive
+	 * @param nanos the time in nanoseconds
+	 */
+	public void nestedArchiveOpened(String name, long nanos) {
+		if (this.enabled) {
+			this.nestedArchivesTime.addAndGet(nanos);
+			this.nestedArchiveTimings.add(new Timing(name, nanos));
+		}
+	}
+
+	/**
+	 * Record the time taken to load the {@link PackageIndex}.
+	 * @param nanos the time in nanoseconds
+	 */
+	public void packageIndexLoaded(long nanos) {
+		if (this.enabled) {
+			this.packageIndexTime.addAndGet(nanos);
+		}
+	}
+
+	/**
+	 * Record the time taken to define a class. Lookups are not included for classes
+	 * found using a {@link PackageIndex}. Without an index classes are found and defined
+	 * by the {@link java.net.URLClassLoader} so the time includes the lookup.
+	 * @param nanos the time in nanoseconds
+	 */
+	public void classDefined(long nanos) {
+		if (!this.enabled) {
+			return;
+		}
+		this.classesDefined.incrementAndGet();
+		this.classDefineTime.addAndGet(nanos);
+		long micros = nanos / 1000;
+		for (int i = 0; i < BUCKET_LIMITS.length; i++) {
+			if (micros < BUCKET_LIMITS[i]) {
+				this.classDefineHistogram.incrementAndGet(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Set the class loader whose caches should be reported.
+	 * @param classLoader the class loader
+	 */
+	public void setClassLoader(LaunchedURLClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Returns the number of classes that have been defined.
+	 * @return the number of classes
+	 */
+	public long getClassesDefined() {
+		return this.classesDefined.get();
+	}
+
+	/**
+	 * Register a shutdown hook that will write the statistics when the JVM exits.
+	 */
+	void writeOnExit() {
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				try {
+					write();
+				}
+				catch (IOException ex) {
+					System.err.println("Unable to write launcher statistics: " + ex);
+				}
+			}
+		});
+	}
+
+	private void write() throws IOException {
+		String file = System.getProperty(STATISTICS_FILE_PROPERTY);
+		if (file == null) {
+			System.err.print(toString());
+			return;
+		}
+		Writer writer = new OutputStreamWriter(new FileOutputStream(new File(file)),
+				"UTF-8");
+		try {
+			writer.write(toString());
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringWriter content = new StringWriter();
+		PrintWriter writer = new PrintWriter(content);
+		writer.println("Launcher statistics");
+		writer.println("  Root archive open:      " + millis(this.rootArchiveTime.get()));
+		writer.println("  Nested archives opened: " + this.nestedArchiveTimings.size()
+				+ " in " + millis(this.nestedArchivesTime.get()));
+		for (Timing timing : getSlowestNestedArchives()) {
+			writer.println("    " + millis(timing.getNanos()) + " " + timing.getName());
+		}
+		writer.println("  Package index load:     " + millis(this.packageIndexTime.get()));
+		writer.println("  Bytes read:             " + RandomAccessJarFile.getBytesRead());
+		writer.println("  Bytes inflated:         " + RandomAccessJarFile.getBytesInflated());
+		writer.println("  Classes defined:        " + this.classesDefined.get() + " in "
+				+ millis(this.classDefineTime.get()));
+		for (int i = 0; i < BUCKET_NAMES.length; i++) {
+			writer.println("    " + BUCKET_NAMES[i] + ": "
+					+ this.classDefineHistogram.get(i));
+		}
+		LaunchedURLClassLoader classLoader = this.classLoader;
+		if (classLoader != null) {
+			writer.println("  Missing class cache:    " + classLoader.getMissingClasses());
+			writer.println("  Missing resource cache: "
+					+ classLoader.getMissingResources());
+		}
+		writer.flush();
+		return content.toString();
+	}
+
+	private List<Timing> getSlowestNestedArchives() {
+		List<Timing> timings = new ArrayList<Timing>(this.nestedArchiveTimings);
+		Collections.sort(timings, new Comparator<Timing>() {
+			@Override
+			public int compare(Timing o1, Timing o2) {
+				return (o1.getNanos() < o2.getNanos() ? 1
+						: (o1.getNanos() == o2.getNanos() ? 0 : -1));
+			}
+		});
+		return timings.subList(0, Math.min(timings.size(), SLOWEST_NESTED_ARCHIVES));
+	}
+
+	private String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.2fms", nanos / 1000000.0);
+	}
+
+	/**
+	 * Returns the shared statistics instance.
+	 * @return the statistics
+	 */
+	public static LauncherStatistics get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * A single named timing.
+	 */
+	private static class Timing {
+
+		private final String name;
+
+		private final long nanos;
+
+		public Timing(String name, long nanos) {
+			this.name = name;
+			this.nanos = nanos;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public long getNanos() {
+			return this.nanos;
+		}
+
+	}
+
+}
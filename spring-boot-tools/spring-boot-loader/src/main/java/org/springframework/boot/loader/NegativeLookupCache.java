@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread-safe cache of names that could not be found by a
+ * {@link LaunchedURLClassLoader}. When the cache is full it is cleared rather than
+ * tracking the usage of individual entries.
+ *
+ * @author agent
+ */
+public class NegativeLookupCache {
+
+	private final int maxSize;
+
+	private final ConcurrentMap<String, Boolean> names = new ConcurrentHashMap<String, Boolean>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Create a new {@link NegativeLookupCache} instance.
+	 * @param maxSize the maximum number of names to cache or {@code 0} to disable
+	 * caching
+	 */
+	public NegativeLookupCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Determine if the name is known to be missing, updating the hit and miss counts.
+	 * @param name the name to check
+	 * @return {@code true} if the name has previously been {@link #add(String) added}
+	 */
+	public boolean contains(String name) {
+		if (this.maxSize <= 0) {
+			return false;
+		}
+		if (this.names.containsKey(name)) {
+			this.hits.incrementAndGet();
+			return true;
+		}
+		this.misses.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Add a name that could not be found.
+	 * @param name the missing name
+	 */
+	public void add(String name) {
+		if (this.maxSize <= 0) {
+			return;
+		}
+		if (this.names.size() >= this.maxSize) {
+			this.names.clear();
+		}
+		this.names.put(name, Boolean.TRUE);
+	}
+
+	/**
+	 * Remove all cached names.
+	 */
+	public void clear() {
+		this.names.clear();
+	}
+
+	/**
+	 * Returns the number of lookups that were answered from the cache.
+	 * @return the hit count
+	 */
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that were not answered from the cache.
+	 * @return the miss count
+	 */
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Returns the number of names currently cached.
+	 * @return the size
+	 */
+	public int getSize() {
+		return this.names.size();
+	}
+
+	@Override
+	public String toString() {
+		long hits = getHitCount();
+		long total = hits + getMissCount();
+		return "size=" + getSize() + ", hits=" + hits + ", misses=" + getMissCount()
+				+ ", hitRate=" + (total == 0 ? 0 : (hits * 100 / total)) + "%";
+	}
+
+}
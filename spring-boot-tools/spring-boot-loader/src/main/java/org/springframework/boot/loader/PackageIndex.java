@@ -0,0 +1,188 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of the directories (packages) contained in each nested archive, written at
+ * build time to {@link #LOCATION}. Once {@link #bind(List) bound} to the classpath, the
+ * index can be used to find the archives that may contain a given class or resource
+ * without searching every archive.
+ * <p>
+ * The index is a UTF-8 text file made up of sections separated by blank lines. The first
+ * line of each section is the name of a nested archive, subsequent lines are the
+ * directories that the archive contains (with a trailing '/', the root directory is
+ * written as a single '/'). Every ancestor of a directory is also listed so that
+ * directory lookups (for example {@code com/example/}) find archives that only contain
+ * sub-packages.
+ *
+ * @author agent
+ */
+public class PackageIndex {
+
+	/**
+	 * The location of the index within the root archive.
+	 */
+	public static final String LOCATION = "META-INF/package.idx";
+
+	private final Map<String, Set<String>> directoriesByArchive;
+
+	private int size = -1;
+
+	private int[] unindexed;
+
+	private Map<String, int[]> byDirectory;
+
+	PackageIndex(Map<String, Set<String>> directoriesByArchive) {
+		this.directoriesByArchive = directoriesByArchive;
+	}
+
+	/**
+	 * Bind the index to the classpath.
+	 * @param names the names of the nested archives that make up the classpath, in
+	 * search order. Elements may be {@code null} for archives that were not loaded from
+	 * a nested entry.
+	 */
+	public void bind(List<String> names) {
+		List<Integer> unindexed = new ArrayList<Integer>();
+		Map<String, List<Integer>> byDirectory = new HashMap<String, List<Integer>>();
+		for (int i = 0; i < names.size(); i++) {
+			Set<String> directories = this.directoriesByArchive.get(names.get(i));
+			if (directories == null) {
+				// Archives that are not indexed must be searched for every name
+				unindexed.add(i);
+				for (List<Integer> positions : byDirectory.values()) {
+					positions.add(i);
+				}
+			}
+			else {
+				for (String directory : directories) {
+					List<Integer> positions = byDirectory.get(directory);
+					if (positions == null) {
+						positions = new ArrayList<Integer>(unindexed);
+						byDirectory.put(directory, positions);
+					}
+					positions.add(i);
+				}
+			}
+		}
+		this.unindexed = toArray(unindexed);
+		this.byDirectory = new HashMap<String, int[]>();
+		for (Map.Entry<String, List<Integer>> entry : byDirectory.entrySet()) {
+			this.byDirectory.put(entry.getKey(), toArray(entry.getValue()));
+		}
+		this.size = names.size();
+	}
+
+	private int[] toArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * Returns the number of classpath elements that the index has been bound to or
+	 * {@code -1} if the index has not been bound.
+	 * @return the size of the bound classpath
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Return the positions of the classpath elements, in search order, that may contain
+	 * the named resource.
+	 * @param name the resource name (for example {@code org/example/Foo.class})
+	 * @return the candidate classpath positions
+	 */
+	public int[] getCandidates(String name) {
+		if (this.byDirectory == null) {
+			throw new IllegalStateException("PackageIndex has not been bound");
+		}
+		int lastSlash = name.lastIndexOf('/');
+		String directory = (lastSlash == -1 ? "" : name.substring(0, lastSlash + 1));
+		int[] candidates = this.byDirectory.get(directory);
+		return (candidates == null ? this.unindexed : candidates);
+	}
+
+	/**
+	 * Load the index from the specified root archive.
+	 * @param archive the root archive
+	 * @return the index or {@code null} if the archive does not contain an index
+	 * @throws IOException
+	 */
+	static PackageIndex load(Archive archive) throws IOException {
+		InputStream inputStream;
+		try {
+			inputStream = new URL(archive.getUrl(), LOCATION).openStream();
+		}
+		catch (FileNotFoundException ex) {
+			return null;
+		}
+		try {
+			return load(inputStream);
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Load the index from the specified stream. The stream is not closed.
+	 * @param inputStream the source of the index
+	 * @return the (unbound) index
+	 * @throws IOException
+	 */
+	public static PackageIndex load(InputStream inputStream) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
+				"UTF-8"));
+		Map<String, Set<String>> directoriesByArchive = new HashMap<String, Set<String>>();
+		Set<String> directories = null;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.length() == 0) {
+				directories = null;
+			}
+			else if (directories == null) {
+				directories = new LinkedHashSet<String>();
+				directoriesByArchive.put(line, directories);
+			}
+			else if ("/".equals(line)) {
+				directories.add("");
+			}
+			else {
+				directories.add(line);
+			}
+		}
+		return new PackageIndex(directoriesByArchive);
+	}
+
+}
@@ -39,6 +39,11 @@ public class WarLauncher extends Launcher {
 		}
 	}
 
+	@Override
+	protected String getNestedArchiveDirectory() {
+		return "WEB-INF/";
+	}
+
 	@Override
 	protected void postProcessLib(Archive archive, List<Archive> lib) throws Exception {
 		lib.add(0, filterArchive(archive));
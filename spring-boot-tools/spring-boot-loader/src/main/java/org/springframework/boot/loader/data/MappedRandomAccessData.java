@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * {@link RandomAccessData} implementation backed by a memory mapped file. Reads do not
+ * require any locking or system calls and {@link #getSubsection(long, long)
+ * subsections} are zero-copy views over the same mapping.
+ * <p>
+ * NOTE: The JDK offers no public API to release a mapping, the underlying memory is
+ * reclaimed when the mapping is garbage collected.
+ *
+ * @author agent
+ * @see RandomAccessDataFile
+ */
+public class MappedRandomAccessData implements RandomAccessData {
+
+	private final File file;
+
+	private final ByteBuffer buffer;
+
+	/**
+	 * Create a new {@link MappedRandomAccessData} backed by the specified file.
+	 * @param file the underlying file
+	 * @throws IOException if the file cannot be mapped
+	 * @throws IllegalArgumentException if the file is null, does not exist or is too
+	 * large to be mapped
+	 */
+	public MappedRandomAccessData(File file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+		if (!file.exists()) {
+			throw new IllegalArgumentException("File must exist");
+		}
+		if (file.length() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("File is too large to be mapped");
+		}
+		this.file = file;
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			// The mapping remains valid once the channel has been closed
+			FileChannel channel = randomAccessFile.getChannel();
+			this.buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Private constructor used to create a {@link #getSubsection(long, long) subsection}.
+	 * @param file the underlying file
+	 * @param buffer the buffer for the section
+	 */
+	private MappedRandomAccessData(File file, ByteBuffer buffer) {
+		this.file = file;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Returns the underling File.
+	 * @return the underlying file
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	@Override
+	public InputStream getInputStream() {
+		return new DataInputStream(this.buffer.duplicate());
+	}
+
+	@Override
+	public RandomAccessData getSubsection(long offset, long length) {
+		if (offset < 0 || length < 0 || offset + length > getSize()) {
+			throw new IndexOutOfBoundsException();
+		}
+		ByteBuffer section = this.buffer.duplicate();
+		section.position((int) offset);
+		section.limit((int) (offset + length));
+		return new MappedRandomAccessData(this.file, section.slice());
+	}
+
+	@Override
+	public long getSize() {
+		return this.buffer.capacity();
+	}
+
+	/**
+	 * {@link InputStream} implementation for the {@link MappedRandomAccessData}. Each
+	 * stream operates on its own view of the buffer so that concurrent reads do not
+	 * interfere with each other.
+	 */
+	private static class DataInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		public DataInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return (this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1);
+		}
+
+		@Override
+		public int read(byte[] b) throws IOException {
+			return read(b, 0, b == null ? 0 : b.length);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (b == null) {
+				throw new NullPointerException("Bytes must not be null");
+			}
+			if (len == 0) {
+				return 0;
+			}
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int amount = Math.min(len, this.buffer.remaining());
+			this.buffer.get(b, off, amount);
+			return amount;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			if (n <= 0) {
+				return 0;
+			}
+			int amount = (int) Math.min(n, this.buffer.remaining());
+			this.buffer.position(this.buffer.position() + amount);
+			return amount;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return this.buffer.remaining();
+		}
+
+	}
+
+}
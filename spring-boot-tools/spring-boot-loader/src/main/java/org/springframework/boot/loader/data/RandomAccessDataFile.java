@@ -16,26 +16,33 @@
 
 package org.springframework.boot.loader.data;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
 
 /**
- * {@link RandomAccessData} implementation backed by a {@link RandomAccessFile}.
+ * {@link RandomAccessData} implementation backed by a {@link RandomAccessFile}. By
+ * default reads are performed using positional reads on a single shared
+ * {@link FileChannel} so that any number of threads can read concurrently without
+ * locking. A pool of {@link RandomAccessFile}s can be used instead when the number of
+ * concurrent reads needs to be limited.
  * 
  * @author Phillip Webb
  */
-public class RandomAccessDataFile implements RandomAccessData {
-
-	private static final int DEFAULT_CONCURRENT_READS = 4;
+public class RandomAccessDataFile implements RandomAccessData, Closeable {
 
 	private File file;
 
-	private final FilePool filePool;
+	private final FileAccess fileAccess;
 
 	private final long offset;
 
@@ -48,14 +55,14 @@ public class RandomAccessDataFile implements RandomAccessData {
 	 * @see #RandomAccessDataFile(File, int)
 	 */
 	public RandomAccessDataFile(File file) {
-		this(file, DEFAULT_CONCURRENT_READS);
+		this(file, 0);
 	}
 
 	/**
 	 * Create a new {@link RandomAccessDataFile} backed by the specified file.
 	 * @param file the underlying file
 	 * @param concurrentReads the maximum number of concurrent reads allowed on the
-	 * underlying file before blocking
+	 * underlying file before blocking or {@code 0} if reads should not be limited
 	 * @throws IllegalArgumentException if the file is null or does not exist
 	 * @see #RandomAccessDataFile(File)
 	 */
@@ -67,19 +74,20 @@ public class RandomAccessDataFile implements RandomAccessData {
 			throw new IllegalArgumentException("File must exist");
 		}
 		this.file = file;
-		this.filePool = new FilePool(concurrentReads);
+		this.fileAccess = (concurrentReads > 0 ? new FilePool(concurrentReads)
+				: new FileChannelAccess());
 		this.offset = 0L;
 		this.length = file.length();
 	}
 
 	/**
 	 * Private constructor used to create a {@link #getSubsection(long, long) subsection}.
-	 * @param pool the underlying pool
+	 * @param fileAccess the underlying file access
 	 * @param offset the offset of the section
 	 * @param length the length of the section
 	 */
-	private RandomAccessDataFile(FilePool pool, long offset, long length) {
-		this.filePool = pool;
+	private RandomAccessDataFile(FileAccess fileAccess, long offset, long length) {
+		this.fileAccess = fileAccess;
 		this.offset = offset;
 		this.length = length;
 	}
@@ -102,7 +110,7 @@ public class RandomAccessDataFile implements RandomAccessData {
 		if (offset < 0 || length < 0 || offset + length > this.length) {
 			throw new IndexOutOfBoundsException();
 		}
-		return new RandomAccessDataFile(this.filePool, this.offset + offset, length);
+		return new RandomAccessDataFile(this.fileAccess, this.offset + offset, length);
 	}
 
 	@Override
@@ -110,8 +118,9 @@ public class RandomAccessDataFile implements RandomAccessData {
 		return this.length;
 	}
 
+	@Override
 	public void close() throws IOException {
-		this.filePool.close();
+		this.fileAccess.close();
 	}
 
 	/**
@@ -156,21 +165,15 @@ public class RandomAccessDataFile implements RandomAccessData {
 			if (cap(len) <= 0) {
 				return -1;
 			}
-			RandomAccessFile file = RandomAccessDataFile.this.filePool.acquire();
-			try {
-				file.seek(RandomAccessDataFile.this.offset + this.position);
-				if (b == null) {
-					int rtn = file.read();
-					moveOn(rtn == -1 ? 0 : 1);
-					return rtn;
-				}
-				else {
-					return (int) moveOn(file.read(b, off, (int) cap(len)));
-				}
-			}
-			finally {
-				RandomAccessDataFile.this.filePool.release(file);
+			FileAccess fileAccess = RandomAccessDataFile.this.fileAccess;
+			long position = RandomAccessDataFile.this.offset + this.position;
+			if (b == null) {
+				int rtn = fileAccess.read(position);
+				moveOn(rtn == -1 ? 0 : 1);
+				return rtn;
 			}
+			int amount = fileAccess.read(b, off, (int) cap(len), position);
+			return (int) moveOn(amount == -1 ? 0 : amount);
 		}
 
 		@Override
@@ -199,11 +202,111 @@ public class RandomAccessDataFile implements RandomAccessData {
 		}
 	}
 
+	/**
+	 * Strategy used to perform reads at a specific position of the underlying file.
+	 */
+	private static interface FileAccess {
+
+		/**
+		 * Read a single byte.
+		 * @param position the position in the file
+		 * @return the byte read or -1 if the end of the file has been reached
+		 * @throws IOException
+		 */
+		int read(long position) throws IOException;
+
+		/**
+		 * Read bytes into the specified array.
+		 * @param b the destination bytes
+		 * @param off the offset of the byte array
+		 * @param len the maximum number of bytes to read
+		 * @param position the position in the file
+		 * @return the number of bytes read or -1 if the end of the file has been
+		 * reached
+		 * @throws IOException
+		 */
+		int read(byte[] b, int off, int len, long position) throws IOException;
+
+		/**
+		 * Close any underlying resources.
+		 * @throws IOException
+		 */
+		void close() throws IOException;
+
+	}
+
+	/**
+	 * {@link FileAccess} that uses positional reads on a single shared
+	 * {@link FileChannel}. Positional reads do not change the channel position so no
+	 * locking is required. Like the {@link FilePool}, closing only releases the
+	 * underlying file which is reopened if further reads are made.
+	 */
+	private class FileChannelAccess implements FileAccess {
+
+		private volatile RandomAccessFile randomAccessFile;
+
+		@Override
+		public int read(long position) throws IOException {
+			byte[] b = new byte[1];
+			return (read(b, 0, 1, position) == -1 ? -1 : b[0] & 0xFF);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len, long position) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+			while (true) {
+				RandomAccessFile file = getRandomAccessFile();
+				try {
+					return file.getChannel().read(buffer, position);
+				}
+				catch (ClosedByInterruptException ex) {
+					// The channel is closed when any reading thread is interrupted
+					reset(file);
+					throw ex;
+				}
+				catch (ClosedChannelException ex) {
+					// Another thread was interrupted, try again with a new channel
+					reset(file);
+				}
+			}
+		}
+
+		private RandomAccessFile getRandomAccessFile() throws IOException {
+			RandomAccessFile file = this.randomAccessFile;
+			if (file == null) {
+				synchronized (this) {
+					file = this.randomAccessFile;
+					if (file == null) {
+						file = new RandomAccessFile(RandomAccessDataFile.this.file, "r");
+						this.randomAccessFile = file;
+					}
+				}
+			}
+			return file;
+		}
+
+		private synchronized void reset(RandomAccessFile file) throws IOException {
+			if (this.randomAccessFile == file) {
+				this.randomAccessFile = null;
+				file.close();
+			}
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			if (this.randomAccessFile != null) {
+				this.randomAccessFile.close();
+				this.randomAccessFile = null;
+			}
+		}
+
+	}
+
 	/**
 	 * Manage a pool that can be used to perform concurrent reads on the underlying
 	 * {@link RandomAccessFile}.
 	 */
-	private class FilePool {
+	private class FilePool implements FileAccess {
 
 		private int size;
 
@@ -235,6 +338,31 @@ public class RandomAccessDataFile implements RandomAccessData {
 			this.available.release();
 		}
 
+		@Override
+		public int read(long position) throws IOException {
+			RandomAccessFile file = acquire();
+			try {
+				file.seek(position);
+				return file.read();
+			}
+			finally {
+				release(file);
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len, long position) throws IOException {
+			RandomAccessFile file = acquire();
+			try {
+				file.seek(position);
+				return file.read(b, off, len);
+			}
+			finally {
+				release(file);
+			}
+		}
+
+		@Override
 		public void close() throws IOException {
 			try {
 				this.available.acquire(size);
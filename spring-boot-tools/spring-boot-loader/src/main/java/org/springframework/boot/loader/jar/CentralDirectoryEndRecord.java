@@ -0,0 +1,201 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.jar;
+
+import java.io.IOException;
+
+import org.springframework.boot.loader.data.RandomAccessData;
+
+/**
+ * A ZIP File "End of central directory record" (EOCD). If the archive also contains a
+ * "Zip64 end of central directory record" then values are read from that record instead
+ * so that archives larger than 4GB, or with more than 65535 entries, are supported.
+ *
+ * @author agent
+ * @see <a href="http://en.wikipedia.org/wiki/Zip_%28file_format%29">Zip File Format</a>
+ */
+class CentralDirectoryEndRecord {
+
+	private static final int MINIMUM_SIZE = 22;
+
+	private static final int MAXIMUM_COMMENT_LENGTH = 0xFFFF;
+
+	private static final int MAXIMUM_SIZE = MINIMUM_SIZE + MAXIMUM_COMMENT_LENGTH;
+
+	private static final int SIGNATURE = 0x06054b50;
+
+	private static final int COMMENT_LENGTH_OFFSET = 20;
+
+	private static final int READ_BLOCK_SIZE = 256;
+
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+
+	private static final int ZIP64_RECORD_SIGNATURE = 0x06064b50;
+
+	private static final int ZIP64_RECORD_SIZE = 56;
+
+	private byte[] block;
+
+	private int offset;
+
+	private int size;
+
+	private byte[] zip64Record;
+
+	private long zip64RecordPosition;
+
+	/**
+	 * Create a new {@link CentralDirectoryEndRecord} instance from the specified
+	 * {@link RandomAccessData}, searching backwards from the end until a valid block is
+	 * located.
+	 * @param data the source data
+	 * @throws IOException
+	 */
+	public CentralDirectoryEndRecord(RandomAccessData data) throws IOException {
+		this.block = createBlockFromEndOfData(data, READ_BLOCK_SIZE);
+		this.size = MINIMUM_SIZE;
+		this.offset = this.block.length - this.size;
+		while (!isValid()) {
+			this.size++;
+			if (this.size > this.block.length) {
+				if (this.size >= MAXIMUM_SIZE || this.size > data.getSize()) {
+					return;
+				}
+				this.block = createBlockFromEndOfData(data, this.size + READ_BLOCK_SIZE);
+			}
+			this.offset = this.block.length - this.size;
+		}
+		readZip64Record(data);
+	}
+
+	private void readZip64Record(RandomAccessData data) throws IOException {
+		long locatorPosition = data.getSize() - this.size - ZIP64_LOCATOR_SIZE;
+		if (locatorPosition < 0) {
+			return;
+		}
+		byte[] locator = Bytes.get(data.getSubsection(locatorPosition,
+				ZIP64_LOCATOR_SIZE));
+		if (Bytes.littleEndianValue(locator, 0, 4) != ZIP64_LOCATOR_SIGNATURE) {
+			return;
+		}
+		// The record usually immediately precedes the locator, using that position
+		// rather than the specified offset allows for prefixed bytes
+		long recordPosition = locatorPosition - ZIP64_RECORD_SIZE;
+		if (recordPosition < 0 || !readZip64Record(data, recordPosition)) {
+			readZip64Record(data, Bytes.littleEndianValue(locator, 8, 8));
+		}
+	}
+
+	private boolean readZip64Record(RandomAccessData data, long position)
+			throws IOException {
+		if (position < 0 || position + ZIP64_RECORD_SIZE > data.getSize()) {
+			return false;
+		}
+		byte[] record = Bytes.get(data.getSubsection(position, ZIP64_RECORD_SIZE));
+		if (Bytes.littleEndianValue(record, 0, 4) != ZIP64_RECORD_SIGNATURE) {
+			return false;
+		}
+		this.zip64Record = record;
+		this.zip64RecordPosition = position;
+		return true;
+	}
+
+	private byte[] createBlockFromEndOfData(RandomAccessData data, int size)
+			throws IOException {
+		int length = (int) Math.min(data.getSize(), size);
+		return Bytes.get(data.getSubsection(data.getSize() - length, length));
+	}
+
+	/**
+	 * Returns {@code true} if a valid end record was located. Archives without a valid
+	 * record must be read sequentially.
+	 * @return if the record is valid
+	 */
+	public boolean isValid() {
+		if (this.block.length < MINIMUM_SIZE || this.offset < 0
+				|| Bytes.littleEndianValue(this.block, this.offset, 4) != SIGNATURE) {
+			return false;
+		}
+		// Total size must be the structure size + comment
+		long commentLength = Bytes.littleEndianValue(this.block, this.offset
+				+ COMMENT_LENGTH_OFFSET, 2);
+		return this.size == MINIMUM_SIZE + commentLength;
+	}
+
+	/**
+	 * Returns {@code true} if values are read from a "Zip64 end of central directory
+	 * record".
+	 * @return if the archive uses Zip64
+	 */
+	public boolean isZip64() {
+		return this.zip64Record != null;
+	}
+
+	/**
+	 * Returns the location in the data that the archive actually starts. For most files
+	 * the archive data will start at 0, however, it is possible to have prefixed bytes
+	 * (often used for startup scripts) at the beginning of the data.
+	 * @param data the source data
+	 * @return the offset within the data where the archive begins
+	 */
+	public long getStartOfArchive(RandomAccessData data) {
+		long endOfCentralDirectory = (isZip64() ? this.zip64RecordPosition : data
+				.getSize() - this.size);
+		long actualOffset = endOfCentralDirectory - getCentralDirectoryLength();
+		return actualOffset - getCentralDirectoryOffset();
+	}
+
+	/**
+	 * Return the bytes of the "Central directory" based on the offset indicated in this
+	 * record.
+	 * @param data the source data
+	 * @return the central directory data
+	 */
+	public RandomAccessData getCentralDirectory(RandomAccessData data) {
+		return data.getSubsection(getStartOfArchive(data) + getCentralDirectoryOffset(),
+				getCentralDirectoryLength());
+	}
+
+	private long getCentralDirectoryOffset() {
+		if (isZip64()) {
+			return Bytes.littleEndianValue(this.zip64Record, 48, 8);
+		}
+		return Bytes.littleEndianValue(this.block, this.offset + 16, 4);
+	}
+
+	private long getCentralDirectoryLength() {
+		if (isZip64()) {
+			return Bytes.littleEndianValue(this.zip64Record, 40, 8);
+		}
+		return Bytes.littleEndianValue(this.block, this.offset + 12, 4);
+	}
+
+	/**
+	 * Return the number of ZIP entries in the file.
+	 * @return the number of records in the zip
+	 */
+	public int getNumberOfRecords() {
+		if (isZip64()) {
+			long numberOfRecords = Bytes.littleEndianValue(this.zip64Record, 32, 8);
+			return (int) Math.min(numberOfRecords, Integer.MAX_VALUE);
+		}
+		return (int) Bytes.littleEndianValue(this.block, this.offset + 10, 2);
+	}
+
+}
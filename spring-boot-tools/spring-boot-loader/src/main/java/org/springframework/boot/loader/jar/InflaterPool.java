@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.jar;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+/**
+ * A bounded, thread-safe pool of "nowrap" {@link Inflater}s. Inflaters that are
+ * {@link #release(Inflater) released} when the pool is full are {@link Inflater#end()
+ * ended} immediately rather than waiting for finalization to free their native memory.
+ *
+ * @author agent
+ */
+class InflaterPool {
+
+	private final int maxSize;
+
+	private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<Inflater>();
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Create a new {@link InflaterPool} instance.
+	 * @param maxSize the maximum number of inflaters to retain
+	 */
+	public InflaterPool(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Return an inflater from the pool or a new inflater if the pool is empty.
+	 * @return the inflater
+	 */
+	public Inflater acquire() {
+		Inflater inflater = this.inflaters.poll();
+		if (inflater == null) {
+			return new Inflater(true);
+		}
+		this.size.decrementAndGet();
+		return inflater;
+	}
+
+	/**
+	 * Return an inflater to the pool. The inflater must not be used after it has been
+	 * released.
+	 * @param inflater the inflater to release
+	 */
+	public void release(Inflater inflater) {
+		if (this.size.incrementAndGet() <= this.maxSize) {
+			inflater.reset();
+			this.inflaters.offer(inflater);
+		}
+		else {
+			this.size.decrementAndGet();
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Returns the number of inflaters currently held in the pool.
+	 * @return the size
+	 */
+	public int getSize() {
+		return this.size.get();
+	}
+
+}
@@ -0,0 +1,476 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.jar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.zip.ZipException;
+
+import org.springframework.boot.loader.data.RandomAccessData;
+
+/**
+ * A compact, read-only table of the entries in a ZIP file. The raw bytes of the "Central
+ * directory" are retained and entry details (including names) are only decoded when
+ * requested. Entries are located by name using a hash table held in primitive arrays so
+ * that no per-entry objects are required.
+ *
+ * @author agent
+ * @see CentralDirectoryEndRecord
+ */
+class JarEntryTable {
+
+	private static final long CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+
+	private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+
+	private static final int LOCAL_FILE_HEADER_SIZE = 30;
+
+	private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+	private static final int ZIP64_EXTRA_HEADER_ID = 0x0001;
+
+	/**
+	 * Offsets of the central directory values that may be replaced by Zip64 extended
+	 * information, in the order that they appear in the extra field.
+	 */
+	private static final int[] ZIP64_VALUE_OFFSETS = { 24, 20, 42 };
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final char SLASH = '/';
+
+	private final RandomAccessData archiveData;
+
+	private final byte[] centralDirectory;
+
+	private final int[] positions;
+
+	private final String[] names;
+
+	private final int[] hashCodes;
+
+	private final int[] buckets;
+
+	private final int[] chain;
+
+	/**
+	 * Create a new {@link JarEntryTable}.
+	 * @param archiveData the archive data (from the start of the archive)
+	 * @param centralDirectory the central directory bytes
+	 * @param positions the position of each entry header within the central directory
+	 * @param names the names of each entry or {@code null} if names should be read from
+	 * the central directory
+	 */
+	private JarEntryTable(RandomAccessData archiveData, byte[] centralDirectory,
+			int[] positions, String[] names) {
+		this.archiveData = archiveData;
+		this.centralDirectory = centralDirectory;
+		this.positions = positions;
+		this.names = names;
+		this.hashCodes = new int[positions.length];
+		this.buckets = new int[getBucketCount(positions.length)];
+		this.chain = new int[positions.length];
+		Arrays.fill(this.buckets, -1);
+		for (int i = positions.length - 1; i >= 0; i--) {
+			this.hashCodes[i] = (names == null ? hash(centralDirectory, positions[i]
+					+ CENTRAL_DIRECTORY_HEADER_SIZE, getNameLength(i)) : hash(names[i],
+					false));
+			int bucket = this.hashCodes[i] & (this.buckets.length - 1);
+			this.chain[i] = this.buckets[bucket];
+			this.buckets[bucket] = i;
+		}
+	}
+
+	private int getBucketCount(int size) {
+		int count = 16;
+		while (count < size) {
+			count <<= 1;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of entries in the table.
+	 * @return the size
+	 */
+	public int getSize() {
+		return this.positions.length;
+	}
+
+	/**
+	 * Find the index of the entry with the specified name. If no exact match is found a
+	 * directory entry with the name is also considered (i.e. {@code name + "/"}).
+	 * @param name the name to find
+	 * @return the index of the entry or {@code -1}
+	 */
+	public int indexOf(String name) {
+		if (name == null) {
+			return -1;
+		}
+		int index = indexOf(name, false);
+		if (index == -1 && !name.endsWith("/")) {
+			index = indexOf(name, true);
+		}
+		return index;
+	}
+
+	private int indexOf(String name, boolean withSlash) {
+		int hashCode = hash(name, withSlash);
+		int index = this.buckets[hashCode & (this.buckets.length - 1)];
+		while (index != -1) {
+			if (this.hashCodes[index] == hashCode && nameMatches(index, name, withSlash)) {
+				return index;
+			}
+			index = this.chain[index];
+		}
+		return -1;
+	}
+
+	private boolean nameMatches(int index, String name, boolean withSlash) {
+		if (this.names != null) {
+			String candidate = this.names[index];
+			return (withSlash ? candidate.length() == name.length() + 1
+					&& candidate.startsWith(name) && candidate.endsWith("/") : candidate
+					.equals(name));
+		}
+		int length = getNameLength(index);
+		if (length != name.length() + (withSlash ? 1 : 0)) {
+			return (!isAscii(name) && getName(index).equals(
+					withSlash ? name + SLASH : name));
+		}
+		int offset = this.positions[index] + CENTRAL_DIRECTORY_HEADER_SIZE;
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c >= 0x80) {
+				return getName(index).equals(withSlash ? name + SLASH : name);
+			}
+			if (this.centralDirectory[offset + i] != c) {
+				return false;
+			}
+		}
+		return (!withSlash || this.centralDirectory[offset + name.length()] == SLASH);
+	}
+
+	/**
+	 * Return the name of the entry at the specified index.
+	 * @param index the entry index
+	 * @return the entry name
+	 */
+	public String getName(int index) {
+		if (this.names != null) {
+			return this.names[index];
+		}
+		return new String(this.centralDirectory, this.positions[index]
+				+ CENTRAL_DIRECTORY_HEADER_SIZE, getNameLength(index), UTF_8);
+	}
+
+	private int getNameLength(int index) {
+		return (int) getValue(index, 28, 2);
+	}
+
+	public int getMethod(int index) {
+		return (int) getValue(index, 10, 2);
+	}
+
+	public long getTime(int index) {
+		return decodeMsDosFormatDateTime(getValue(index, 14, 2), getValue(index, 12, 2));
+	}
+
+	public long getCrc(int index) {
+		return getValue(index, 16, 4);
+	}
+
+	public long getCompressedSize(int index) {
+		return getZip64Value(index, 20);
+	}
+
+	public long getSize(int index) {
+		return getZip64Value(index, 24);
+	}
+
+	public byte[] getExtra(int index) {
+		int extraLength = (int) getValue(index, 30, 2);
+		if (extraLength == 0) {
+			return null;
+		}
+		byte[] extra = new byte[extraLength];
+		System.arraycopy(this.centralDirectory, this.positions[index]
+				+ CENTRAL_DIRECTORY_HEADER_SIZE + getNameLength(index), extra, 0,
+				extraLength);
+		return extra;
+	}
+
+	public String getComment(int index) {
+		int commentLength = (int) getValue(index, 32, 2);
+		if (commentLength == 0) {
+			return null;
+		}
+		int offset = this.positions[index] + CENTRAL_DIRECTORY_HEADER_SIZE
+				+ getNameLength(index) + (int) getValue(index, 30, 2);
+		return new String(this.centralDirectory, offset, commentLength, UTF_8);
+	}
+
+	/**
+	 * Return the (possibly compressed) data of the entry at the specified index. The
+	 * local file header of the entry is read in order to locate the data.
+	 * @param index the entry index
+	 * @return the entry data
+	 * @throws IOException
+	 */
+	public RandomAccessData getData(int index) throws IOException {
+		long localHeaderOffset = getZip64Value(index, 42);
+		byte[] localHeader = Bytes.get(this.archiveData.getSubsection(localHeaderOffset,
+				LOCAL_FILE_HEADER_SIZE));
+		long nameLength = Bytes.littleEndianValue(localHeader, 26, 2);
+		long extraLength = Bytes.littleEndianValue(localHeader, 28, 2);
+		return this.archiveData.getSubsection(localHeaderOffset + LOCAL_FILE_HEADER_SIZE
+				+ nameLength + extraLength, getCompressedSize(index));
+	}
+
+	/**
+	 * Return a 4 byte central directory value, reading the 8 byte value from the Zip64
+	 * extended information extra field if required.
+	 */
+	private long getZip64Value(int index, int offset) {
+		long value = getValue(index, offset, 4);
+		if (value != ZIP64_MAGIC) {
+			return value;
+		}
+		int valueIndex = 0;
+		for (int i = 0; ZIP64_VALUE_OFFSETS[i] != offset; i++) {
+			if (getValue(index, ZIP64_VALUE_OFFSETS[i], 4) == ZIP64_MAGIC) {
+				valueIndex++;
+			}
+		}
+		int extra = this.positions[index] + CENTRAL_DIRECTORY_HEADER_SIZE
+				+ getNameLength(index);
+		int extraEnd = extra + (int) getValue(index, 30, 2);
+		while (extra + 4 <= extraEnd) {
+			int headerId = (int) Bytes.littleEndianValue(this.centralDirectory, extra, 2);
+			int dataSize = (int) Bytes.littleEndianValue(this.centralDirectory,
+					extra + 2, 2);
+			if (headerId == ZIP64_EXTRA_HEADER_ID && (valueIndex + 1) * 8 <= dataSize) {
+				return Bytes.littleEndianValue(this.centralDirectory, extra + 4
+						+ valueIndex * 8, 8);
+			}
+			extra += 4 + dataSize;
+		}
+		return value;
+	}
+
+	private long getValue(int index, int offset, int length) {
+		return Bytes.littleEndianValue(this.centralDirectory, this.positions[index]
+				+ offset, length);
+	}
+
+	/**
+	 * Return a new table containing a selection of the entries from this table. The
+	 * central directory and archive data are shared, no data is copied.
+	 * @param indexes the indexes of the entries to select
+	 * @param names the names to use for the selected entries
+	 * @return a new table
+	 */
+	public JarEntryTable select(int[] indexes, String[] names) {
+		int[] positions = new int[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			positions[i] = this.positions[indexes[i]];
+		}
+		return new JarEntryTable(this.archiveData, this.centralDirectory, positions,
+				names);
+	}
+
+	/**
+	 * Load a table from the central directory of the specified data. Archives without a
+	 * readable central directory end record are streamed instead.
+	 * @param data the source data
+	 * @return the table
+	 * @throws IOException
+	 */
+	public static JarEntryTable load(RandomAccessData data) throws IOException {
+		CentralDirectoryEndRecord endRecord = new CentralDirectoryEndRecord(data);
+		if (!endRecord.isValid()) {
+			return loadFromLocalHeaders(data);
+		}
+		long startOfArchive = endRecord.getStartOfArchive(data);
+		RandomAccessData archiveData = data.getSubsection(startOfArchive, data.getSize()
+				- startOfArchive);
+		byte[] centralDirectory = Bytes.get(endRecord.getCentralDirectory(data));
+		int[] positions = new int[Math.min(endRecord.getNumberOfRecords(),
+				centralDirectory.length / CENTRAL_DIRECTORY_HEADER_SIZE)];
+		int count = 0;
+		int position = 0;
+		while (position < centralDirectory.length) {
+			if (position + CENTRAL_DIRECTORY_HEADER_SIZE > centralDirectory.length
+					|| Bytes.littleEndianValue(centralDirectory, position, 4) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+				throw new ZipException("Invalid central directory file header at "
+						+ position);
+			}
+			if (count == positions.length) {
+				positions = Arrays.copyOf(positions, count * 2 + 1);
+			}
+			positions[count++] = position;
+			position += CENTRAL_DIRECTORY_HEADER_SIZE
+					+ Bytes.littleEndianValue(centralDirectory, position + 28, 2)
+					+ Bytes.littleEndianValue(centralDirectory, position + 30, 2)
+					+ Bytes.littleEndianValue(centralDirectory, position + 32, 2);
+		}
+		if (count != positions.length) {
+			positions = Arrays.copyOf(positions, count);
+		}
+		return new JarEntryTable(archiveData, centralDirectory, positions, null);
+	}
+
+	/**
+	 * Load a table by streaming over the local file headers of an archive that does not
+	 * have a readable central directory end record. A central directory is built from the
+	 * streamed entries so that the table can be used in the same way. Zip64 archives are
+	 * not supported.
+	 * @param data the source data
+	 * @return the table
+	 * @throws IOException
+	 */
+	private static JarEntryTable loadFromLocalHeaders(RandomAccessData data)
+			throws IOException {
+		ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+		int[] positions = new int[16];
+		int count = 0;
+		long localHeaderOffset = 0;
+		RandomAccessDataZipInputStream inputStream = new RandomAccessDataZipInputStream(
+				data);
+		try {
+			RandomAccessDataZipEntry entry = inputStream.getNextEntry();
+			while (entry != null) {
+				if (count == positions.length) {
+					positions = Arrays.copyOf(positions, count * 2);
+				}
+				positions[count++] = centralDirectory.size();
+				byte[] name = entry.getName().getBytes(UTF_8);
+				byte[] extra = (entry.getExtra() == null ? new byte[0] : entry
+						.getExtra());
+				byte[] header = new byte[CENTRAL_DIRECTORY_HEADER_SIZE];
+				putValue(header, 0, 4, CENTRAL_DIRECTORY_HEADER_SIGNATURE);
+				putValue(header, 10, 2, entry.getMethod());
+				putValue(header, 12, 4, encodeMsDosFormatDateTime(entry.getTime()));
+				putValue(header, 16, 4, entry.getCrc());
+				putValue(header, 20, 4, entry.getCompressedSize());
+				putValue(header, 24, 4, entry.getSize());
+				putValue(header, 28, 2, name.length);
+				putValue(header, 30, 2, extra.length);
+				putValue(header, 42, 4, localHeaderOffset);
+				centralDirectory.write(header);
+				centralDirectory.write(name);
+				centralDirectory.write(extra);
+				// The entry data follows the local header and (for entries written with
+				// a data descriptor) is followed by the descriptor
+				localHeaderOffset += LOCAL_FILE_HEADER_SIZE + name.length + extra.length
+						+ entry.getData().getSize();
+				entry = inputStream.getNextEntry();
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+		if (count == 0) {
+			throw new ZipException("Unable to find ZIP central directory");
+		}
+		return new JarEntryTable(data, centralDirectory.toByteArray(), Arrays.copyOf(
+				positions, count), null);
+	}
+
+	private static void putValue(byte[] bytes, int offset, int length, long value) {
+		for (int i = 0; i < length; i++) {
+			bytes[offset + i] = (byte) (value >> (8 * i));
+		}
+	}
+
+	/**
+	 * Hash function that produces the same value for a name {@link String} as for its
+	 * UTF-8 bytes.
+	 */
+	private static int hash(String name, boolean withSlash) {
+		if (!isAscii(name)) {
+			byte[] bytes = (withSlash ? name + SLASH : name).getBytes(UTF_8);
+			return hash(bytes, 0, bytes.length);
+		}
+		int hash = 0;
+		for (int i = 0; i < name.length(); i++) {
+			hash = 31 * hash + name.charAt(i);
+		}
+		return (withSlash ? 31 * hash + SLASH : hash);
+	}
+
+	private static int hash(byte[] bytes, int offset, int length) {
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + (bytes[i] & 0xFF);
+		}
+		return hash;
+	}
+
+	private static boolean isAscii(String name) {
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Decode MS-DOS Date Time details. See <a
+	 * href="http://mindprod.com/jgloss/zip.html">mindprod.com/jgloss/zip.html</a> for
+	 * more details of the format.
+	 * @param date the date part
+	 * @param time the time part
+	 * @return the date and time as milliseconds since the epoch
+	 */
+	private static long decodeMsDosFormatDateTime(long date, long time) {
+		int year = (int) ((date >> 9) & 0x7F) + 1980;
+		int month = (int) ((date >> 5) & 0xF) - 1;
+		int day = (int) (date & 0x1F);
+		int hours = (int) ((time >> 11) & 0x1F);
+		int minutes = (int) ((time >> 5) & 0x3F);
+		int seconds = (int) ((time << 1) & 0x3E);
+		Calendar calendar = new GregorianCalendar(year, month, day, hours, minutes,
+				seconds);
+		return calendar.getTimeInMillis();
+	}
+
+	/**
+	 * Encode a time as MS-DOS Date Time details, the time in the low two bytes followed
+	 * by the date.
+	 * @param time the time in milliseconds since the epoch
+	 * @return the encoded date and time
+	 * @see #decodeMsDosFormatDateTime(long, long)
+	 */
+	private static long encodeMsDosFormatDateTime(long time) {
+		Calendar calendar = new GregorianCalendar();
+		calendar.setTimeInMillis(time);
+		long date = ((Math.max(calendar.get(Calendar.YEAR), 1980) - 1980) << 9)
+				| ((calendar.get(Calendar.MONTH) + 1) << 5)
+				| calendar.get(Calendar.DAY_OF_MONTH);
+		long dosTime = (calendar.get(Calendar.HOUR_OF_DAY) << 11)
+				| (calendar.get(Calendar.MINUTE) << 5)
+				| (calendar.get(Calendar.SECOND) >> 1);
+		return (date << 16) | dosTime;
+	}
+
+}
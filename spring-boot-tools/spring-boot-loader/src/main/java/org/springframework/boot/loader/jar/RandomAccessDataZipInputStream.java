@@ -65,14 +65,14 @@ public class RandomAccessDataZipInputStream extends ZipInputStream {
 		if (entry == null) {
 			return null;
 		}
-		int start = getPosition();
+		long start = getPosition();
 		closeEntry();
-		int end = getPosition();
+		long end = getPosition();
 		RandomAccessData entryData = this.data.getSubsection(start, end - start);
 		return new RandomAccessDataZipEntry(entry, entryData);
 	}
 
-	private int getPosition() throws IOException {
+	private long getPosition() throws IOException {
 		int pushback = ((PushbackInputStream) this.in).available();
 		return this.trackingInputStream.getPosition() - pushback;
 	}
@@ -82,7 +82,7 @@ public class RandomAccessDataZipInputStream extends ZipInputStream {
 	 */
 	private static class TrackingInputStream extends FilterInputStream {
 
-		private int position = 0;
+		private long position = 0;
 
 		protected TrackingInputStream(InputStream in) {
 			super(in);
@@ -114,7 +114,7 @@ public class RandomAccessDataZipInputStream extends ZipInputStream {
 			return 0;
 		}
 
-		public int getPosition() {
+		public long getPosition() {
 			return this.position;
 		}
 	}
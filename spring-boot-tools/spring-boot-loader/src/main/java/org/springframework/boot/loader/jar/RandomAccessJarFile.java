@@ -17,9 +17,11 @@
 package org.springframework.boot.loader.jar;
 
 import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.JarURLConnection;
@@ -27,18 +29,19 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Enumeration;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
 
+import org.springframework.boot.loader.data.MappedRandomAccessData;
 import org.springframework.boot.loader.data.RandomAccessData;
 import org.springframework.boot.loader.data.RandomAccessDataFile;
 
@@ -63,7 +66,30 @@ import org.springframework.boot.loader.data.RandomAccessDataFile;
  */
 public class RandomAccessJarFile extends JarFile {
 
-	private final RandomAccessDataFile rootJarFile;
+	/**
+	 * System property that can be used to set the size of the buffer used when reading
+	 * compressed entries.
+	 */
+	public static final String INFLATER_BUFFER_SIZE_PROPERTY = "loader.inflaterBufferSize";
+
+	private static final int DEFAULT_INFLATER_BUFFER_SIZE = 8192;
+
+	private static final int INFLATER_BUFFER_SIZE = Math.max(
+			Integer.getInteger(INFLATER_BUFFER_SIZE_PROPERTY,
+					DEFAULT_INFLATER_BUFFER_SIZE), 1);
+
+	private static volatile boolean statisticsEnabled;
+
+	private static final AtomicLong BYTES_READ = new AtomicLong();
+
+	private static final AtomicLong BYTES_INFLATED = new AtomicLong();
+
+	private static final InflaterPool INFLATER_POOL = new InflaterPool(Math.max(
+			Runtime.getRuntime().availableProcessors() * 2, 8));
+
+	private final File rootFile;
+
+	private final RandomAccessData rootData;
 
 	private RandomAccessData data;
 
@@ -71,7 +97,9 @@ public class RandomAccessJarFile extends JarFile {
 
 	private final long size;
 
-	private Map<String, JarEntry> entries = new LinkedHashMap<String, JarEntry>();
+	private final JarEntryTable table;
+
+	private final AtomicReferenceArray<Entry> entries;
 
 	private Manifest manifest;
 
@@ -93,56 +121,82 @@ public class RandomAccessJarFile extends JarFile {
 	 */
 	public RandomAccessJarFile(RandomAccessDataFile file, JarEntryFilter... filters)
 			throws IOException {
-		this(file, file.getFile().getPath(), file, filters);
+		this(file.getFile(), file, file.getFile().getPath(), file, filters);
+	}
+
+	/**
+	 * Create a new {@link RandomAccessJarFile} backed by the specified memory mapped
+	 * file.
+	 * @param file the root jar file
+	 * @param filters an optional set of jar entry filters
+	 * @throws IOException
+	 */
+	public RandomAccessJarFile(MappedRandomAccessData file, JarEntryFilter... filters)
+			throws IOException {
+		this(file.getFile(), file, file.getFile().getPath(), file, filters);
 	}
 
 	/**
 	 * Private constructor used to create a new {@link RandomAccessJarFile} either
 	 * directly or from a nested entry.
-	 * @param rootJarFile the root jar file
+	 * @param rootFile the root jar file
+	 * @param rootData the data of the root jar file
 	 * @param name the name of this file
 	 * @param data the underlying data
 	 * @param filters an optional set of jar entry filters
 	 * @throws IOException
 	 */
-	private RandomAccessJarFile(RandomAccessDataFile rootJarFile, String name,
+	private RandomAccessJarFile(File rootFile, RandomAccessData rootData, String name,
 			RandomAccessData data, JarEntryFilter... filters) throws IOException {
-		super(rootJarFile.getFile());
-		this.rootJarFile = rootJarFile;
+		this(rootFile, rootData, name, data, JarEntryTable.load(data), filters);
+	}
+
+	/**
+	 * Private constructor used to create a new {@link RandomAccessJarFile} from an
+	 * already loaded {@link JarEntryTable}.
+	 * @param rootFile the root jar file
+	 * @param rootData the data of the root jar file
+	 * @param name the name of this file
+	 * @param data the underlying data
+	 * @param table the entry table
+	 * @param filters an optional set of jar entry filters
+	 * @throws IOException
+	 */
+	private RandomAccessJarFile(File rootFile, RandomAccessData rootData, String name,
+			RandomAccessData data, JarEntryTable table, JarEntryFilter... filters)
+			throws IOException {
+		super(rootFile);
+		this.rootFile = rootFile;
+		this.rootData = rootData;
 		this.name = name;
 		this.data = data;
 		this.size = data.getSize();
-
-		RandomAccessDataZipInputStream inputStream = new RandomAccessDataZipInputStream(
-				data);
-		try {
-			RandomAccessDataZipEntry zipEntry = inputStream.getNextEntry();
-			while (zipEntry != null) {
-				addJarEntry(zipEntry, filters);
-				zipEntry = inputStream.getNextEntry();
-			}
-			this.manifest = findManifest();
-			if (this.manifest != null) {
-				for (JarEntry containedEntry : this.entries.values()) {
-					((Entry) containedEntry).configure(this.manifest);
-				}
-			}
-		}
-		finally {
-			inputStream.close();
-		}
+		this.table = applyFilters(table, filters);
+		this.entries = new AtomicReferenceArray<Entry>(this.table.getSize());
+		this.manifest = findManifest();
 	}
 
-	private void addJarEntry(RandomAccessDataZipEntry zipEntry, JarEntryFilter... filters) {
-		Entry jarEntry = new Entry(zipEntry);
-		String name = zipEntry.getName();
-		for (JarEntryFilter filter : filters) {
-			name = (filter == null || name == null ? name : filter.apply(name, jarEntry));
+	private JarEntryTable applyFilters(JarEntryTable table, JarEntryFilter... filters) {
+		if (filters.length == 0) {
+			return table;
 		}
-		if (name != null) {
-			jarEntry.setName(name);
-			this.entries.put(name, jarEntry);
+		int[] indexes = new int[table.getSize()];
+		String[] names = new String[table.getSize()];
+		int count = 0;
+		for (int i = 0; i < table.getSize(); i++) {
+			Entry jarEntry = new Entry(this, table, i);
+			String name = jarEntry.getName();
+			for (JarEntryFilter filter : filters) {
+				name = (filter == null || name == null ? name : filter.apply(name,
+						jarEntry));
+			}
+			if (name != null) {
+				indexes[count] = i;
+				names[count] = name;
+				count++;
+			}
 		}
+		return table.select(Arrays.copyOf(indexes, count), Arrays.copyOf(names, count));
 	}
 
 	private Manifest findManifest() throws IOException {
@@ -155,8 +209,8 @@ public class RandomAccessJarFile extends JarFile {
 		return null;
 	}
 
-	protected final RandomAccessDataFile getRootJarFile() {
-		return this.rootJarFile;
+	protected final File getRootFile() {
+		return this.rootFile;
 	}
 
 	@Override
@@ -166,7 +220,30 @@ public class RandomAccessJarFile extends JarFile {
 
 	@Override
 	public Enumeration<JarEntry> entries() {
-		return Collections.enumeration(this.entries.values());
+		return new Enumeration<JarEntry>() {
+
+			private int index = 0;
+
+			@Override
+			public boolean hasMoreElements() {
+				return this.index < RandomAccessJarFile.this.table.getSize();
+			}
+
+			@Override
+			public JarEntry nextElement() {
+				if (!hasMoreElements()) {
+					throw new NoSuchElementException();
+				}
+				// Don't cache entries created only for enumeration
+				Entry entry = RandomAccessJarFile.this.entries.get(this.index);
+				if (entry == null) {
+					entry = new Entry(RandomAccessJarFile.this,
+							RandomAccessJarFile.this.table, this.index);
+				}
+				this.index++;
+				return entry;
+			}
+		};
 	}
 
 	@Override
@@ -176,22 +253,41 @@ public class RandomAccessJarFile extends JarFile {
 
 	@Override
 	public ZipEntry getEntry(String name) {
-		JarEntry entry = this.entries.get(name);
-		if (entry == null && name != null && !name.endsWith("/")) {
-			entry = this.entries.get(name + "/");
+		int index = this.table.indexOf(name);
+		if (index == -1) {
+			return null;
+		}
+		Entry entry = this.entries.get(index);
+		if (entry == null) {
+			entry = new Entry(this, this.table, index);
+			if (!this.entries.compareAndSet(index, null, entry)) {
+				entry = this.entries.get(index);
+			}
 		}
 		return entry;
 	}
 
 	@Override
-	public synchronized InputStream getInputStream(ZipEntry ze) throws IOException {
+	public InputStream getInputStream(ZipEntry ze) throws IOException {
 		InputStream inputStream = getData(ze).getInputStream();
 		if (ze.getMethod() == ZipEntry.DEFLATED) {
-			inputStream = new ZipInflaterInputStream(inputStream);
+			return new ZipInflaterInputStream(inputStream, getInflaterBufferSize(ze));
+		}
+		if (statisticsEnabled) {
+			inputStream = new CountingInputStream(inputStream);
 		}
 		return inputStream;
 	}
 
+	private int getInflaterBufferSize(ZipEntry ze) {
+		long compressedSize = ze.getCompressedSize();
+		if (compressedSize < 0) {
+			return INFLATER_BUFFER_SIZE;
+		}
+		// Allow for the extra dummy byte so small entries are read with a single fill
+		return (int) Math.min(compressedSize + 1, INFLATER_BUFFER_SIZE);
+	}
+
 	/**
 	 * Return a nested {@link RandomAccessJarFile} loaded from the specified entry.
 	 * @param ze the zip entry
@@ -199,7 +295,7 @@ public class RandomAccessJarFile extends JarFile {
 	 * @return a {@link RandomAccessJarFile} for the entry
 	 * @throws IOException
 	 */
-	public synchronized RandomAccessJarFile getNestedJarFile(final ZipEntry ze,
+	public RandomAccessJarFile getNestedJarFile(final ZipEntry ze,
 			JarEntryFilter... filters) throws IOException {
 		if (ze == null) {
 			throw new IllegalArgumentException("ZipEntry must not be null");
@@ -214,20 +310,25 @@ public class RandomAccessJarFile extends JarFile {
 
 	private RandomAccessJarFile getNestedJarFileFromDirectoryEntry(final ZipEntry entry,
 			JarEntryFilter... filters) throws IOException {
-		final String name = entry.getName();
-		JarEntryFilter[] filtersToUse = new JarEntryFilter[filters.length + 1];
-		System.arraycopy(filters, 0, filtersToUse, 1, filters.length);
-		filtersToUse[0] = new JarEntryFilter() {
-			@Override
-			public String apply(String entryName, JarEntry ze) {
-				if (entryName.startsWith(name) && !entryName.equals(name)) {
-					return entryName.substring(entry.getName().length());
-				}
-				return null;
+		String name = entry.getName();
+		// Select entries directly from the table so that entry objects are only created
+		// for those within the directory
+		int[] indexes = new int[this.table.getSize()];
+		String[] names = new String[this.table.getSize()];
+		int count = 0;
+		for (int i = 0; i < this.table.getSize(); i++) {
+			String entryName = this.table.getName(i);
+			if (entryName.startsWith(name) && !entryName.equals(name)) {
+				indexes[count] = i;
+				names[count] = entryName.substring(name.length());
+				count++;
 			}
-		};
-		return new RandomAccessJarFile(this.rootJarFile, getName() + "!/"
-				+ name.substring(0, name.length() - 1), this.data, filtersToUse);
+		}
+		JarEntryTable directoryTable = this.table.select(Arrays.copyOf(indexes, count),
+				Arrays.copyOf(names, count));
+		return new RandomAccessJarFile(this.rootFile, this.rootData, getName() + "!/"
+				+ name.substring(0, name.length() - 1), this.data, directoryTable,
+				filters);
 	}
 
 	private RandomAccessJarFile getNestedJarFileFromFileEntry(ZipEntry entry,
@@ -236,19 +337,21 @@ public class RandomAccessJarFile extends JarFile {
 			throw new IllegalStateException("Unable to open nested compressed entry "
 					+ entry.getName());
 		}
-		return new RandomAccessJarFile(this.rootJarFile, getName() + "!/"
+		return new RandomAccessJarFile(this.rootFile, this.rootData, getName() + "!/"
 				+ entry.getName(), getData(entry), filters);
 	}
 
 	/**
-	 * Return a new jar based on the filtered contents of this file.
+	 * Return a new jar based on the filtered contents of this file. The entries already
+	 * read by this file are shared with the new jar so no further data is read.
 	 * @param filters the set of jar entry filters to be applied
 	 * @return a filtered {@link RandomAccessJarFile}
 	 * @throws IOException
 	 */
-	public synchronized RandomAccessJarFile getFilteredJarFile(JarEntryFilter... filters)
+	public RandomAccessJarFile getFilteredJarFile(JarEntryFilter... filters)
 			throws IOException {
-		return new RandomAccessJarFile(this.rootJarFile, getName(), this.data, filters);
+		return new RandomAccessJarFile(this.rootFile, this.rootData, getName(),
+				this.data, this.table, filters);
 	}
 
 	/**
@@ -257,8 +360,8 @@ public class RandomAccessJarFile extends JarFile {
 	 * @return the entry {@link RandomAccessData}
 	 * @throws IOException
 	 */
-	private synchronized RandomAccessData getData(ZipEntry ze) throws IOException {
-		if (!this.entries.containsValue(ze)) {
+	private RandomAccessData getData(ZipEntry ze) throws IOException {
+		if (!(ze instanceof Entry) || ((Entry) ze).getJarFile() != this) {
 			throw new IllegalArgumentException("ZipEntry must be contained in this file");
 		}
 		return ((Entry) ze).getData();
@@ -271,12 +374,23 @@ public class RandomAccessJarFile extends JarFile {
 
 	@Override
 	public int size() {
-		return (int) this.size;
+		return (int) Math.min(this.size, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Return the size of the jar file data. Unlike {@link #size()} the value is not
+	 * limited to {@link Integer#MAX_VALUE}.
+	 * @return the size in bytes
+	 */
+	public long getSize() {
+		return this.size;
 	}
 
 	@Override
 	public void close() throws IOException {
-		this.rootJarFile.close();
+		if (this.rootData instanceof Closeable) {
+			((Closeable) this.rootData).close();
+		}
 	}
 
 	@Override
@@ -297,44 +411,83 @@ public class RandomAccessJarFile extends JarFile {
 	}
 
 	/**
-	 * A single {@link JarEntry} in this file.
+	 * A single {@link JarEntry} in this file. Entries are created on demand from the
+	 * {@link JarEntryTable}.
 	 */
 	private static class Entry extends JarEntry {
 
-		private String name;
+		private final RandomAccessJarFile jarFile;
 
-		private RandomAccessData entryData;
+		private final JarEntryTable table;
 
-		private Attributes attributes;
-
-		public Entry(RandomAccessDataZipEntry entry) {
-			super(entry);
-			this.entryData = entry.getData();
-		}
+		private final int index;
 
-		void configure(Manifest manifest) {
-			this.attributes = manifest.getAttributes(getName());
-		}
+		private volatile RandomAccessData data;
 
-		void setName(String name) {
-			this.name = name;
+		public Entry(RandomAccessJarFile jarFile, JarEntryTable table, int index) {
+			super(table.getName(index));
+			this.jarFile = jarFile;
+			this.table = table;
+			this.index = index;
+			setMethod(table.getMethod(index));
+			setTime(table.getTime(index));
+			setCrc(table.getCrc(index));
+			setCompressedSize(table.getCompressedSize(index));
+			setSize(table.getSize(index));
+			setExtra(table.getExtra(index));
+			setComment(table.getComment(index));
 		}
 
-		@Override
-		public String getName() {
-			return (this.name == null ? super.getName() : this.name);
+		public RandomAccessJarFile getJarFile() {
+			return this.jarFile;
 		}
 
 		@Override
 		public Attributes getAttributes() throws IOException {
-			return this.attributes;
+			Manifest manifest = this.jarFile.getManifest();
+			return (manifest == null ? null : manifest.getAttributes(getName()));
 		}
 
-		public RandomAccessData getData() {
-			return this.entryData;
+		public RandomAccessData getData() throws IOException {
+			if (this.data == null) {
+				this.data = this.table.getData(this.index);
+			}
+			return this.data;
 		}
 	}
 
+	/**
+	 * Set if the bytes read by entry streams should be counted. Counting is disabled by
+	 * default.
+	 * @param enabled if bytes read should be counted
+	 * @see #getBytesRead()
+	 * @see #getBytesInflated()
+	 */
+	public static void setStatisticsEnabled(boolean enabled) {
+		statisticsEnabled = enabled;
+	}
+
+	/**
+	 * Returns the total number of bytes of entry data (compressed data for deflated
+	 * entries) that have been read by closed entry streams from all
+	 * {@link RandomAccessJarFile}s. Only counted when statistics are
+	 * {@link #setStatisticsEnabled(boolean) enabled}.
+	 * @return the number of bytes read
+	 */
+	public static long getBytesRead() {
+		return BYTES_READ.get();
+	}
+
+	/**
+	 * Returns the total number of bytes that have been inflated by closed entry streams
+	 * from all {@link RandomAccessJarFile}s. Only counted when statistics are
+	 * {@link #setStatisticsEnabled(boolean) enabled}.
+	 * @return the number of bytes inflated
+	 */
+	public static long getBytesInflated() {
+		return BYTES_INFLATED.get();
+	}
+
 	/**
 	 * {@link URLStreamHandler} used to support {@link RandomAccessJarFile#getUrl()}.
 	 */
@@ -367,7 +520,7 @@ public class RandomAccessJarFile extends JarFile {
 
 		protected RandomAccessJarURLConnection(URL url, RandomAccessJarFile jarFile)
 				throws MalformedURLException {
-			super(new URL("jar:file:" + jarFile.getRootJarFile().getFile().getPath()
+			super(new URL("jar:file:" + jarFile.getRootFile().getPath()
 					+ "!/"));
 			this.jarFile = jarFile;
 
@@ -416,9 +569,14 @@ public class RandomAccessJarFile extends JarFile {
 
 		@Override
 		public int getContentLength() {
+			long length = getContentLengthLong();
+			return (length > Integer.MAX_VALUE ? -1 : (int) length);
+		}
+
+		public long getContentLengthLong() {
 			try {
 				connect();
-				return (int) (this.jarEntry == null ? this.jarFile.size() : this.jarEntry
+				return (this.jarEntry == null ? this.jarFile.getSize() : this.jarEntry
 						.getSize());
 			}
 			catch (IOException ex) {
@@ -449,14 +607,34 @@ public class RandomAccessJarFile extends JarFile {
 
 	/**
 	 * {@link InflaterInputStream} that support the writing of an extra "dummy" byte which
-	 * is required with JDK 6
+	 * is required with JDK 6. Inflaters are obtained from a pool and released when the
+	 * stream is closed.
 	 */
 	private static class ZipInflaterInputStream extends InflaterInputStream {
 
 		private boolean extraBytesWritten;
 
-		public ZipInflaterInputStream(InputStream inputStream) {
-			super(inputStream, new Inflater(true), 512);
+		private boolean closed;
+
+		public ZipInflaterInputStream(InputStream inputStream, int bufferSize) {
+			super(inputStream, INFLATER_POOL.acquire(), bufferSize);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!this.closed) {
+				this.closed = true;
+				try {
+					super.close();
+				}
+				finally {
+					if (statisticsEnabled) {
+						BYTES_READ.addAndGet(this.inf.getBytesRead());
+						BYTES_INFLATED.addAndGet(this.inf.getBytesWritten());
+					}
+					INFLATER_POOL.release(this.inf);
+				}
+			}
 		}
 
 		@Override
@@ -476,4 +654,59 @@ public class RandomAccessJarFile extends JarFile {
 		}
 
 	}
+
+	/**
+	 * {@link FilterInputStream} that counts the bytes read from a stored entry.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+
+		private long count;
+
+		private boolean closed;
+
+		public CountingInputStream(InputStream inputStream) {
+			super(inputStream);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				this.count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int bytesRead = super.read(b, off, len);
+			if (bytesRead > 0) {
+				this.count += bytesRead;
+			}
+			return bytesRead;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			this.count += skipped;
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!this.closed) {
+				this.closed = true;
+				BYTES_READ.addAndGet(this.count);
+			}
+			super.close();
+		}
+
+	}
+
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ClassLoadingRecorder} and {@link ClassLoadingPrefetcher}.
+ *
+ * @author agent
+ */
+public class ClassLoadingRecorderTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void recordAndLoad() throws Exception {
+		File file = this.temporaryFolder.newFile();
+		ClassLoadingRecorder recorder = new ClassLoadingRecorder(file, 10000);
+		recorder.classLoaded("org.example.Foo");
+		recorder.resourceFound("META-INF/spring.factories");
+		recorder.classLoaded("org.example.Foo");
+		recorder.classLoaded("Bar");
+		recorder.stop();
+		assertThat(recorder.isRecording(), equalTo(false));
+		ClassLoadingPrefetcher prefetcher = ClassLoadingPrefetcher.load(file);
+		assertThat(prefetcher.getNames(), equalTo(Arrays.asList(
+				"org/example/Foo.class", "META-INF/spring.factories", "Bar.class")));
+	}
+
+	@Test
+	public void stopsAfterDuration() throws Exception {
+		File file = this.temporaryFolder.newFile();
+		ClassLoadingRecorder recorder = new ClassLoadingRecorder(file, -1);
+		recorder.classLoaded("org.example.Foo");
+		assertThat(recorder.isRecording(), equalTo(false));
+		assertThat(ClassLoadingPrefetcher.load(file).getNames().size(), equalTo(0));
+	}
+
+}
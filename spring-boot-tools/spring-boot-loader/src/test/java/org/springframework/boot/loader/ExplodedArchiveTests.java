@@ -23,8 +23,11 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -38,6 +41,7 @@ import org.springframework.boot.loader.ExplodedArchive;
 import org.springframework.boot.loader.Archive.Entry;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
@@ -99,6 +103,31 @@ public class ExplodedArchiveTests {
 		assertThat(entries.size(), equalTo(7));
 	}
 
+	@Test
+	public void getEntriesInDirectory() throws Exception {
+		final List<String> visited = new ArrayList<String>();
+		Archive archive = this.archive.getFilteredArchive(new Archive.EntryFilter() {
+			@Override
+			public String apply(String entryName, Entry entry) {
+				visited.add(entryName);
+				return entryName;
+			}
+		});
+		Map<String, Entry> entries = new HashMap<String, Entry>();
+		for (Archive.Entry entry : archive.getEntries("d/")) {
+			entries.put(entry.getName(), entry);
+		}
+		assertThat(entries.size(), equalTo(1));
+		assertThat(entries.get("d/9.dat"), notNullValue());
+		assertThat(visited, equalTo(Collections.singletonList("d/9.dat")));
+	}
+
+	@Test
+	public void getEntriesInMissingDirectory() throws Exception {
+		assertThat(this.archive.getEntries("missing/").iterator().hasNext(),
+				equalTo(false));
+	}
+
 	@Test
 	public void getUrl() throws Exception {
 		URL url = this.archive.getUrl();
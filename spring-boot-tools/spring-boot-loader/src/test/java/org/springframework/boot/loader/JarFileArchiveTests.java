@@ -17,13 +17,20 @@
 package org.springframework.boot.loader;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
 import java.net.URL;
+import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.springframework.boot.loader.Archive;
 import org.springframework.boot.loader.JarFileArchive;
@@ -31,6 +38,7 @@ import org.springframework.boot.loader.Archive.Entry;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Tests for {@link JarFileArchive}.
@@ -42,6 +50,9 @@ public class JarFileArchiveTests {
 	@Rule
 	public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
 	private File rootJarFile;
 
 	private JarFileArchive archive;
@@ -65,6 +76,16 @@ public class JarFileArchiveTests {
 		assertThat(entries.size(), equalTo(7));
 	}
 
+	@Test
+	public void getEntriesInDirectory() throws Exception {
+		Map<String, Archive.Entry> entries = new HashMap<String, Archive.Entry>();
+		for (Archive.Entry entry : this.archive.getEntries("d/")) {
+			entries.put(entry.getName(), entry);
+		}
+		assertThat(entries.size(), equalTo(1));
+		assertThat(entries.containsKey("d/9.dat"), equalTo(true));
+	}
+
 	@Test
 	public void getUrl() throws Exception {
 		URL url = this.archive.getUrl();
@@ -80,6 +101,74 @@ public class JarFileArchiveTests {
 				equalTo("jar:file:" + this.rootJarFile.getPath() + "!/nested.jar!/"));
 	}
 
+	@Test
+	public void getExtractedNestedArchive() throws Exception {
+		File directory = this.temporaryFolder.newFolder();
+		Entry entry = getEntriesMap(this.archive).get("nested.jar");
+		Archive nested = this.archive.getNestedArchive(entry, directory);
+		File file = ((ExtractedJarArchive) nested).getFile();
+		assertThat(file.getName(), equalTo("nested.jar"));
+		assertThat(file.getParentFile().getParentFile(), equalTo(directory));
+		assertThat(nested.getUrl(), equalTo(file.toURI().toURL()));
+		assertThat(getEntriesMap(nested).containsKey("3.dat"), equalTo(true));
+		long lastModified = file.lastModified();
+		Archive again = this.archive.getNestedArchive(entry, directory);
+		assertThat(((ExtractedJarArchive) again).getFile(), equalTo(file));
+		assertThat(file.lastModified(), equalTo(lastModified));
+	}
+
+	@Test
+	public void getExtractedNestedArchiveReplacesModifiedFile() throws Exception {
+		File directory = this.temporaryFolder.newFolder();
+		Entry entry = getEntriesMap(this.archive).get("nested.jar");
+		File file = ((ExtractedJarArchive) this.archive.getNestedArchive(entry,
+				directory)).getFile();
+		byte[] tampered = new byte[(int) file.length()];
+		FileOutputStream outputStream = new FileOutputStream(file);
+		try {
+			outputStream.write(tampered);
+		}
+		finally {
+			outputStream.close();
+		}
+		Archive nested = this.archive.getNestedArchive(entry, directory);
+		assertThat(getEntriesMap(nested).containsKey("3.dat"), equalTo(true));
+	}
+
+	@Test
+	public void getExtractedNestedArchiveUsesDigestDirectory() throws Exception {
+		File directory = this.temporaryFolder.newFolder();
+		Entry entry = getEntriesMap(this.archive).get("nested.jar");
+		File file = ((ExtractedJarArchive) this.archive.getNestedArchive(entry,
+				directory)).getFile();
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[4096];
+			int bytesRead;
+			while ((bytesRead = inputStream.read(buffer)) != -1) {
+				digest.update(buffer, 0, bytesRead);
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+		assertThat(file.getParentFile().getName(),
+				equalTo(String.format("%064x", new BigInteger(1, digest.digest()))));
+	}
+
+	@Test
+	public void getExtractedNestedArchiveRejectsDirectoryWritableByOthers()
+			throws Exception {
+		File directory = this.temporaryFolder.newFolder();
+		// Permissions for others can only be set on POSIX file systems
+		assumeTrue(File.separatorChar == '/' && directory.setWritable(true, false));
+		Entry entry = getEntriesMap(this.archive).get("nested.jar");
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("must be owned by the current user");
+		this.archive.getNestedArchive(entry, directory);
+	}
+
 	@Test
 	public void getFilteredArchive() throws Exception {
 		Archive filteredArchive = this.archive
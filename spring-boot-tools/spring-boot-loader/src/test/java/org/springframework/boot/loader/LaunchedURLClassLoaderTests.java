@@ -0,0 +1,219 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link LaunchedURLClassLoader}.
+ *
+ * @author agent
+ */
+public class LaunchedURLClassLoaderTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private URL[] urls;
+
+	@Before
+	public void setup() throws Exception {
+		File jar = this.temporaryFolder.newFile("a.jar");
+		JarOutputStream outputStream = new JarOutputStream(new FileOutputStream(jar));
+		try {
+			writeEntry(outputStream, "a/A.class", 100);
+			writeEntry(outputStream, "a/B.class", 100);
+			writeEntry(outputStream, "a/r.txt", 10);
+		}
+		finally {
+			outputStream.close();
+		}
+		this.urls = new URL[] { jar.toURI().toURL() };
+	}
+
+	@After
+	public void cleanup() {
+		System.clearProperty(LaunchedURLClassLoader.PREFETCH_LIMIT_PROPERTY);
+	}
+
+	@Test
+	public void prefetchRetainsClassBytes() throws Exception {
+		LaunchedURLClassLoader classLoader = createIndexedClassLoader();
+		classLoader.prefetch("a/A.class");
+		classLoader.prefetch("a/A.class");
+		classLoader.prefetch("a/r.txt");
+		assertThat(classLoader.getPrefetchedBytes(), equalTo(100L));
+	}
+
+	@Test
+	public void prefetchIsLimited() throws Exception {
+		System.setProperty(LaunchedURLClassLoader.PREFETCH_LIMIT_PROPERTY, "150");
+		LaunchedURLClassLoader classLoader = createIndexedClassLoader();
+		classLoader.prefetch("a/A.class");
+		classLoader.prefetch("a/B.class");
+		assertThat(classLoader.getPrefetchedBytes(), equalTo(100L));
+	}
+
+	@Test
+	public void clearPrefetched() throws Exception {
+		LaunchedURLClassLoader classLoader = createIndexedClassLoader();
+		classLoader.prefetch("a/A.class");
+		classLoader.clearPrefetched();
+		assertThat(classLoader.getPrefetchedBytes(), equalTo(0L));
+		classLoader.prefetch("a/B.class");
+		assertThat(classLoader.getPrefetchedBytes(), equalTo(0L));
+	}
+
+	@Test
+	public void prefetchBypassesNegativeCacheAndRecorder() throws Exception {
+		File trace = this.temporaryFolder.newFile();
+		ClassLoadingRecorder recorder = new ClassLoadingRecorder(trace, 10000);
+		LaunchedURLClassLoader classLoader = new LaunchedURLClassLoader(this.urls, null);
+		classLoader.setRecorder(recorder);
+		classLoader.prefetch("a/r.txt");
+		classLoader.prefetch("a/missing.txt");
+		classLoader.prefetch("a/Missing.class");
+		recorder.stop();
+		assertThat(classLoader.getMissingResources().getSize(), equalTo(0));
+		assertThat(ClassLoadingPrefetcher.load(trace).getNames().size(), equalTo(0));
+	}
+
+	@Test
+	public void registeredAsParallelCapable() throws Exception {
+		LaunchedURLClassLoader classLoader = new LaunchedURLClassLoader(this.urls, null);
+		Boolean parallelCapable = isParallelCapable(classLoader);
+		if (parallelCapable != null) {
+			assertThat(parallelCapable, equalTo(true));
+			assertThat(LaunchedURLClassLoader.registerAsParallelCapable(ClassLoader.class),
+					equalTo(true));
+		}
+	}
+
+	@Test
+	public void registrationWithoutParallelCapableSupport() throws Exception {
+		// Simulate Java 6 where the registration method does not exist
+		assertThat(
+				LaunchedURLClassLoader.registerAsParallelCapable(URLClassLoader.class),
+				equalTo(false));
+		LaunchedURLClassLoader classLoader = new LaunchedURLClassLoader(this.urls,
+				getClass().getClassLoader());
+		assertThat(classLoader.loadClass(getClass().getName()),
+				equalTo((Object) getClass()));
+		assertThat(classLoader.getResource("a/r.txt"), notNullValue());
+	}
+
+	@Test
+	public void indexedClassFromDirectoryWithSpaceInPath() throws Exception {
+		File directory = this.temporaryFolder.newFolder("a b");
+		String path = Sample.class.getName().replace('.', '/') + ".class";
+		File file = new File(directory, path);
+		file.getParentFile().mkdirs();
+		InputStream inputStream = getClass().getClassLoader().getResourceAsStream(path);
+		try {
+			FileOutputStream outputStream = new FileOutputStream(file);
+			try {
+				byte[] buffer = new byte[4096];
+				int read;
+				while ((read = inputStream.read(buffer)) != -1) {
+					outputStream.write(buffer, 0, read);
+				}
+			}
+			finally {
+				outputStream.close();
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+		// Unencoded, as returned from ExplodedArchive.getUrl()
+		URL url = new URL("file", "", -1, directory.getAbsolutePath() + "/");
+		PackageIndex index = PackageIndex.load(new ByteArrayInputStream(
+				"lib/a.jar\na/\n\n".getBytes("UTF-8")));
+		index.bind(Collections.<String> singletonList(null));
+		LaunchedURLClassLoader classLoader = new LaunchedURLClassLoader(
+				new URL[] { url }, null, index);
+		Class<?> type = classLoader.loadClass(Sample.class.getName());
+		assertThat(type.getClassLoader(), equalTo((Object) classLoader));
+	}
+
+	/**
+	 * Determine if the class loader is parallel capable using the methods available on
+	 * the running JVM.
+	 * @param classLoader the class loader
+	 * @return if the class loader is parallel capable or {@code null} if unknown
+	 */
+	private Boolean isParallelCapable(ClassLoader classLoader) throws Exception {
+		try {
+			// Java 9 or later
+			Method method = ClassLoader.class.getMethod("isRegisteredAsParallelCapable");
+			return (Boolean) method.invoke(classLoader);
+		}
+		catch (NoSuchMethodException ex) {
+		}
+		try {
+			// Java 7 and 8 use a lock per class name when parallel capable
+			Method method = ClassLoader.class.getDeclaredMethod("getClassLoadingLock",
+					String.class);
+			method.setAccessible(true);
+			return method.invoke(classLoader, "a.A") != classLoader;
+		}
+		catch (NoSuchMethodException ex) {
+			// Java 6
+			return null;
+		}
+	}
+
+	private LaunchedURLClassLoader createIndexedClassLoader() throws Exception {
+		PackageIndex index = PackageIndex.load(new ByteArrayInputStream(
+				"lib/a.jar\na/\n\n".getBytes("UTF-8")));
+		index.bind(Collections.singletonList("lib/a.jar"));
+		return new LaunchedURLClassLoader(this.urls, null, index);
+	}
+
+	/**
+	 * Class loaded from a directory by {@link #indexedClassFromDirectoryWithSpaceInPath}.
+	 */
+	public static class Sample {
+	}
+
+	private void writeEntry(JarOutputStream outputStream, String name, int size)
+			throws Exception {
+		outputStream.putNextEntry(new JarEntry(name));
+		outputStream.write(new byte[size]);
+		outputStream.closeEntry();
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link LauncherStatistics}.
+ *
+ * @author agent
+ */
+public class LauncherStatisticsTests {
+
+	@Test
+	public void recordsWhenEnabled() throws Exception {
+		LauncherStatistics statistics = new LauncherStatistics(true);
+		statistics.nestedArchiveOpened("lib/a.jar", 2000000);
+		statistics.nestedArchiveOpened("lib/b.jar", 5000000);
+		statistics.classDefined(50000);
+		statistics.classDefined(5000);
+		String content = statistics.toString();
+		assertThat(statistics.getClassesDefined(), equalTo(2L));
+		assertThat(content, containsString("Nested archives opened: 2 in 7.00ms"));
+		assertThat(content, containsString("5.00ms lib/b.jar"));
+		assertThat(content.indexOf("lib/b.jar") < content.indexOf("lib/a.jar"),
+				equalTo(true));
+		assertThat(content, containsString("<10us: 1"));
+		assertThat(content, containsString("<100us: 1"));
+	}
+
+	@Test
+	public void ignoredWhenDisabled() throws Exception {
+		LauncherStatistics statistics = new LauncherStatistics(false);
+		statistics.classDefined(5000);
+		assertThat(statistics.getClassesDefined(), equalTo(0L));
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link Launcher}.
+ *
+ * @author agent
+ */
+public class LauncherTests {
+
+	private static final String[] NAMES = { "a", "b", "c", "d" };
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private File root;
+
+	private final Set<String> threads = Collections
+			.synchronizedSet(new HashSet<String>());
+
+	@Before
+	public void setup() throws Exception {
+		this.root = this.temporaryFolder.newFolder();
+		for (String name : NAMES) {
+			File directory = new File(this.root, "lib/" + name);
+			directory.mkdirs();
+			new File(directory, name + ".txt").createNewFile();
+		}
+	}
+
+	@After
+	public void cleanup() {
+		System.clearProperty(Launcher.THREADS_PROPERTY);
+	}
+
+	@Test
+	public void nestedArchivesOpenedInOrderWithThreads() throws Exception {
+		System.setProperty(Launcher.THREADS_PROPERTY, "4");
+		Archive archive = new SlowArchive(this.root, null);
+		List<Archive.Entry> entries = getEntries(archive);
+		List<Archive> nested = new JarLauncher().getNestedArchives(archive, entries);
+		assertThat(nested.size(), equalTo(NAMES.length));
+		for (int i = 0; i < NAMES.length; i++) {
+			assertThat(nested.get(i).getUrl(), equalTo(new File(this.root, "lib/"
+					+ NAMES[i] + "/").toURI().toURL()));
+		}
+		assertThat(this.threads.size(), greaterThan(1));
+	}
+
+	@Test
+	public void nestedArchivesOpenedInOrderWithSingleThread() throws Exception {
+		System.setProperty(Launcher.THREADS_PROPERTY, "1");
+		Archive archive = new SlowArchive(this.root, null);
+		List<Archive> nested = new JarLauncher().getNestedArchives(archive,
+				getEntries(archive));
+		assertThat(nested.get(0).getUrl(), equalTo(new File(this.root, "lib/a/")
+				.toURI().toURL()));
+		assertThat(this.threads, equalTo(Collections.singleton(Thread.currentThread()
+				.getName())));
+	}
+
+	@Test
+	public void nestedArchiveOpenFailurePropagates() throws Exception {
+		System.setProperty(Launcher.THREADS_PROPERTY, "4");
+		Archive archive = new SlowArchive(this.root, "lib/c/");
+		this.thrown.expect(IOException.class);
+		this.thrown.expectMessage("lib/c/");
+		new JarLauncher().getNestedArchives(archive, getEntries(archive));
+	}
+
+	private List<Archive.Entry> getEntries(Archive archive) {
+		List<Archive.Entry> entries = new ArrayList<Archive.Entry>();
+		for (String name : NAMES) {
+			for (Archive.Entry entry : archive.getEntries("lib/")) {
+				if (entry.getName().equals("lib/" + name + "/")) {
+					entries.add(entry);
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * {@link ExplodedArchive} that opens earlier nested archives more slowly so that
+	 * they complete out of order.
+	 */
+	private class SlowArchive extends ExplodedArchive {
+
+		private final String failingEntry;
+
+		public SlowArchive(File root, String failingEntry) {
+			super(root);
+			this.failingEntry = failingEntry;
+		}
+
+		@Override
+		public Archive getNestedArchive(Entry entry) throws IOException {
+			LauncherTests.this.threads.add(Thread.currentThread().getName());
+			if (entry.getName().equals(this.failingEntry)) {
+				throw new IOException("Unable to open " + entry.getName());
+			}
+			try {
+				Thread.sleep(('e' - entry.getName().charAt(4)) * 20);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			return super.getNestedArchive(entry);
+		}
+
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link NegativeLookupCache}.
+ *
+ * @author agent
+ */
+public class NegativeLookupCacheTests {
+
+	@Test
+	public void hitsAndMisses() throws Exception {
+		NegativeLookupCache cache = new NegativeLookupCache(10);
+		assertThat(cache.contains("a"), equalTo(false));
+		cache.add("a");
+		assertThat(cache.contains("a"), equalTo(true));
+		assertThat(cache.contains("a"), equalTo(true));
+		assertThat(cache.getHitCount(), equalTo(2L));
+		assertThat(cache.getMissCount(), equalTo(1L));
+		assertThat(cache.toString(), equalTo("size=1, hits=2, misses=1, hitRate=66%"));
+	}
+
+	@Test
+	public void bounded() throws Exception {
+		NegativeLookupCache cache = new NegativeLookupCache(2);
+		cache.add("a");
+		cache.add("b");
+		cache.add("c");
+		assertThat(cache.getSize(), equalTo(1));
+		assertThat(cache.contains("c"), equalTo(true));
+		assertThat(cache.contains("a"), equalTo(false));
+	}
+
+	@Test
+	public void disabled() throws Exception {
+		NegativeLookupCache cache = new NegativeLookupCache(0);
+		cache.add("a");
+		assertThat(cache.contains("a"), equalTo(false));
+		assertThat(cache.getSize(), equalTo(0));
+	}
+
+}
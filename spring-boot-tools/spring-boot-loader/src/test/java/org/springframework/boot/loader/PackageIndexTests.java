@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link PackageIndex}.
+ *
+ * @author agent
+ */
+public class PackageIndexTests {
+
+	private static final String INDEX = "lib/a.jar\n/\na/\na/b/\n\nlib/b.jar\nb/\na/\n\n";
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private PackageIndex index;
+
+	@Before
+	public void setup() throws Exception {
+		this.index = PackageIndex.load(new ByteArrayInputStream(INDEX.getBytes("UTF-8")));
+	}
+
+	@Test
+	public void notBound() throws Exception {
+		this.thrown.expect(IllegalStateException.class);
+		this.index.getCandidates("a/A.class");
+	}
+
+	@Test
+	public void indexedArchivesOnly() throws Exception {
+		this.index.bind(Arrays.asList("lib/a.jar", "lib/b.jar"));
+		assertThat(this.index.getSize(), equalTo(2));
+		assertThat(this.index.getCandidates("a/A.class"), equalTo(new int[] { 0, 1 }));
+		assertThat(this.index.getCandidates("a/b/B.class"), equalTo(new int[] { 0 }));
+		assertThat(this.index.getCandidates("b/B.class"), equalTo(new int[] { 1 }));
+		assertThat(this.index.getCandidates("root.txt"), equalTo(new int[] { 0 }));
+		assertThat(this.index.getCandidates("c/C.class"), equalTo(new int[] {}));
+	}
+
+	@Test
+	public void unindexedArchivesAlwaysIncludedInOrder() throws Exception {
+		this.index.bind(Arrays.asList(null, "lib/b.jar", "lib/c.jar", "lib/a.jar"));
+		assertThat(this.index.getCandidates("a/A.class"), equalTo(new int[] { 0, 1, 2,
+				3 }));
+		assertThat(this.index.getCandidates("b/B.class"), equalTo(new int[] { 0, 1, 2 }));
+		assertThat(this.index.getCandidates("a/b/B.class"), equalTo(new int[] { 0, 2,
+				3 }));
+		assertThat(this.index.getCandidates("c/C.class"), equalTo(new int[] { 0, 2 }));
+	}
+
+	@Test
+	public void ancestorDirectories() throws Exception {
+		PackageIndex index = PackageIndex.load(new ByteArrayInputStream(
+				"lib/c.jar\nc/\nc/d/\nc/d/e/\n\n".getBytes("UTF-8")));
+		index.bind(Arrays.asList("lib/c.jar"));
+		assertThat(index.getCandidates("c/"), equalTo(new int[] { 0 }));
+		assertThat(index.getCandidates("c/d/"), equalTo(new int[] { 0 }));
+		assertThat(index.getCandidates("c/d/e/E.class"), equalTo(new int[] { 0 }));
+		assertThat(index.getCandidates("c/C.class"), equalTo(new int[] { 0 }));
+		assertThat(index.getCandidates("root.txt"), equalTo(new int[] {}));
+	}
+
+}
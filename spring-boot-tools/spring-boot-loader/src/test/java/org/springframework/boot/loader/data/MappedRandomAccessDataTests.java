@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.data;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link MappedRandomAccessData}.
+ *
+ * @author agent
+ */
+public class MappedRandomAccessDataTests {
+
+	private static final byte[] BYTES;
+	static {
+		BYTES = new byte[256];
+		for (int i = 0; i < BYTES.length; i++) {
+			BYTES[i] = (byte) i;
+		}
+	}
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File tempFile;
+
+	private MappedRandomAccessData data;
+
+	@Before
+	public void setup() throws Exception {
+		this.tempFile = this.temporaryFolder.newFile();
+		FileOutputStream outputStream = new FileOutputStream(this.tempFile);
+		outputStream.write(BYTES);
+		outputStream.close();
+		this.data = new MappedRandomAccessData(this.tempFile);
+	}
+
+	@Test
+	public void fileNotNull() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("File must not be null");
+		new MappedRandomAccessData(null);
+	}
+
+	@Test
+	public void fileExists() throws Exception {
+		this.thrown.expect(IllegalArgumentException.class);
+		this.thrown.expectMessage("File must exist");
+		new MappedRandomAccessData(new File("/does/not/exist"));
+	}
+
+	@Test
+	public void inputStreamRead() throws Exception {
+		InputStream inputStream = this.data.getInputStream();
+		for (int i = 0; i <= 255; i++) {
+			assertThat(inputStream.read(), equalTo(i));
+		}
+		assertThat(inputStream.read(), equalTo(-1));
+	}
+
+	@Test
+	public void inputStreamReadBytes() throws Exception {
+		byte[] b = new byte[300];
+		assertThat(this.data.getInputStream().read(b), equalTo(256));
+		assertThat(b[255], equalTo((byte) 255));
+	}
+
+	@Test
+	public void inputStreamSkip() throws Exception {
+		InputStream inputStream = this.data.getInputStream();
+		assertThat(inputStream.skip(4), equalTo(4L));
+		assertThat(inputStream.read(), equalTo(4));
+		assertThat(inputStream.skip(1000), equalTo(251L));
+		assertThat(inputStream.read(), equalTo(-1));
+	}
+
+	@Test
+	public void subsection() throws Exception {
+		RandomAccessData subsection = this.data.getSubsection(10, 10);
+		assertThat(subsection.getSize(), equalTo(10L));
+		InputStream inputStream = subsection.getInputStream();
+		assertThat(inputStream.read(), equalTo(10));
+		inputStream.skip(8);
+		assertThat(inputStream.read(), equalTo(19));
+		assertThat(inputStream.read(), equalTo(-1));
+	}
+
+	@Test
+	public void nestedSubsection() throws Exception {
+		RandomAccessData subsection = this.data.getSubsection(10, 10).getSubsection(2,
+				3);
+		assertThat(subsection.getSize(), equalTo(3L));
+		assertThat(subsection.getInputStream().read(), equalTo(12));
+	}
+
+	@Test
+	public void subsectionTooBig() throws Exception {
+		this.thrown.expect(IndexOutOfBoundsException.class);
+		this.data.getSubsection(250, 10);
+	}
+
+	@Test
+	public void independentInputStreams() throws Exception {
+		InputStream inputStream1 = this.data.getInputStream();
+		InputStream inputStream2 = this.data.getInputStream();
+		inputStream1.skip(100);
+		assertThat(inputStream2.read(), equalTo(0));
+		assertThat(inputStream1.read(), equalTo(100));
+	}
+
+	@Test
+	public void getFile() throws Exception {
+		assertThat(this.data.getFile(), equalTo(this.tempFile));
+	}
+
+}
@@ -295,19 +295,58 @@ public class RandomAccessDataFileTests {
 		}
 	}
 
+	@Test
+	public void concurrentReadsWithFilePool() throws Exception {
+		final RandomAccessDataFile pooledFile = new RandomAccessDataFile(tempFile, 2);
+		ExecutorService executorService = Executors.newFixedThreadPool(20);
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for (int i = 0; i < 100; i++) {
+			results.add(executorService.submit(new Callable<Boolean>() {
+
+				@Override
+				public Boolean call() throws Exception {
+					InputStream subsectionInputStream = pooledFile.getSubsection(0, 256)
+							.getInputStream();
+					byte[] b = new byte[256];
+					subsectionInputStream.read(b);
+					return Arrays.equals(b, BYTES);
+				}
+			}));
+		}
+		for (Future<Boolean> future : results) {
+			assertThat(future.get(), equalTo(true));
+		}
+		pooledFile.close();
+	}
+
 	@Test
 	public void close() throws Exception {
-		file.getInputStream().read();
-		file.close();
-		Field filePoolField = RandomAccessDataFile.class.getDeclaredField("filePool");
+		RandomAccessDataFile pooledFile = new RandomAccessDataFile(tempFile, 1);
+		pooledFile.getInputStream().read();
+		pooledFile.close();
+		Field filePoolField = RandomAccessDataFile.class.getDeclaredField("fileAccess");
 		filePoolField.setAccessible(true);
-		Object filePool = filePoolField.get(file);
+		Object filePool = filePoolField.get(pooledFile);
 		Field filesField = filePool.getClass().getDeclaredField("files");
 		filesField.setAccessible(true);
 		Queue<?> queue = (Queue<?>) filesField.get(filePool);
 		assertThat(queue.size(), equalTo(0));
 	}
 
+	@Test
+	public void readAfterClose() throws Exception {
+		file.getInputStream().read();
+		file.close();
+		assertThat(file.getInputStream().read(), equalTo(0));
+	}
+
+	@Test
+	public void readSubsectionAfterClose() throws Exception {
+		RandomAccessData subsection = file.getSubsection(1, 1);
+		file.close();
+		assertThat(subsection.getInputStream().read(), equalTo(1));
+	}
+
 	private static Matcher<? super byte[]> startsWith(byte[] bytes) {
 		return new ByteArrayStartsWith(bytes);
 	}
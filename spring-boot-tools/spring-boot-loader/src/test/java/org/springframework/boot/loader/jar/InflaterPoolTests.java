@@ -0,0 +1,57 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.loader.jar;
+
+import java.util.zip.Inflater;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link InflaterPool}.
+ *
+ * @author agent
+ */
+public class InflaterPoolTests {
+
+	@Test
+	public void releasedInflaterIsReused() throws Exception {
+		InflaterPool pool = new InflaterPool(1);
+		Inflater inflater = pool.acquire();
+		pool.release(inflater);
+		assertThat(pool.getSize(), equalTo(1));
+		assertThat(pool.acquire(), sameInstance(inflater));
+		assertThat(pool.getSize(), equalTo(0));
+	}
+
+	@Test
+	public void bounded() throws Exception {
+		InflaterPool pool = new InflaterPool(1);
+		Inflater inflater1 = pool.acquire();
+		Inflater inflater2 = pool.acquire();
+		assertThat(inflater1, not(sameInstance(inflater2)));
+		pool.release(inflater1);
+		pool.release(inflater2);
+		assertThat(pool.getSize(), equalTo(1));
+		assertThat(pool.acquire(), sameInstance(inflater1));
+	}
+
+}
@@ -16,16 +16,25 @@
 
 package org.springframework.boot.loader.jar;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.JarURLConnection;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.CRC32;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -60,6 +69,8 @@ public class RandomAccessJarFileTests {
 	@Rule
 	public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
+	private static final int DOS_DATE = (1 << 5) | 1;
+
 	private File rootJarFile;
 
 	private RandomAccessJarFile jarFile;
@@ -85,6 +96,35 @@ public class RandomAccessJarFileTests {
 		assertThat(jarFile.getName(), notNullValue(String.class));
 	}
 
+	@Test
+	public void createFromFileWithPrefixedBytes() throws Exception {
+		File prefixedFile = this.temporaryFolder.newFile();
+		FileOutputStream outputStream = new FileOutputStream(prefixedFile);
+		try {
+			outputStream.write("#!/bin/sh\n".getBytes());
+			FileInputStream inputStream = new FileInputStream(this.rootJarFile);
+			try {
+				byte[] buffer = new byte[4096];
+				int read;
+				while ((read = inputStream.read(buffer)) != -1) {
+					outputStream.write(buffer, 0, read);
+				}
+			}
+			finally {
+				inputStream.close();
+			}
+		}
+		finally {
+			outputStream.close();
+		}
+		RandomAccessJarFile jarFile = new RandomAccessJarFile(prefixedFile);
+		assertThat(jarFile.getManifest().getMainAttributes().getValue("Built-By"),
+				equalTo("j1"));
+		InputStream inputStream = jarFile.getInputStream(jarFile.getEntry("1.dat"));
+		assertThat(inputStream.read(), equalTo(1));
+		assertThat(inputStream.read(), equalTo(-1));
+	}
+
 	@Test
 	public void getManifest() throws Exception {
 		assertThat(this.jarFile.getManifest().getMainAttributes().getValue("Built-By"),
@@ -111,6 +151,157 @@ public class RandomAccessJarFileTests {
 		assertThat(entry.getName(), equalTo("1.dat"));
 	}
 
+	@Test
+	public void createFromZip64File() throws Exception {
+		// More than 65535 entries requires a Zip64 end record
+		File zip64File = this.temporaryFolder.newFile();
+		ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(
+				zip64File));
+		try {
+			for (int i = 0; i < 0x10010; i++) {
+				outputStream.putNextEntry(new ZipEntry(i + ".dat"));
+				outputStream.write(i & 0xFF);
+			}
+		}
+		finally {
+			outputStream.close();
+		}
+		RandomAccessJarFile jarFile = new RandomAccessJarFile(zip64File);
+		int count = 0;
+		Enumeration<JarEntry> entries = jarFile.entries();
+		while (entries.hasMoreElements()) {
+			entries.nextElement();
+			count++;
+		}
+		assertThat(count, equalTo(0x10010));
+		ZipEntry entry = jarFile.getEntry("65540.dat");
+		assertThat(jarFile.getInputStream(entry).read(), equalTo(65540 & 0xFF));
+		jarFile.close();
+	}
+
+	@Test
+	public void createFromZip64FileWithLargeSizeAndOffset() throws Exception {
+		File zip64File = this.temporaryFolder.newFile();
+		long largeSize = 0x100000001L;
+		writeZip64FileWithLargeEntry(zip64File, largeSize);
+		RandomAccessJarFile jarFile = new RandomAccessJarFile(zip64File);
+		ZipEntry large = jarFile.getEntry("large.dat");
+		assertThat(large.getSize(), equalTo(largeSize));
+		assertThat(large.getCompressedSize(), equalTo(largeSize));
+		assertThat(jarFile.getInputStream(large).read(), equalTo(0));
+		// The local header of the second entry starts after the first 4GB
+		ZipEntry small = jarFile.getEntry("small.dat");
+		assertThat(small.getSize(), equalTo(1L));
+		assertThat(jarFile.getInputStream(small).read(), equalTo(42));
+		jarFile.close();
+	}
+
+	/**
+	 * Write a sparse Zip64 file containing a stored entry that is larger than 4GB
+	 * followed by a single byte entry whose local header offset is beyond 4GB.
+	 */
+	private void writeZip64FileWithLargeEntry(File file, long largeSize)
+			throws IOException {
+		long smallOffset = 30 + 9 + 20 + largeSize;
+		CRC32 crc = new CRC32();
+		crc.update(42);
+		LittleEndianOutputStream large = new LittleEndianOutputStream();
+		large.writeLocalHeader("large.dat", 0, 0xFFFFFFFFL, 20);
+		large.writeShort(1).writeShort(16).writeLong(largeSize).writeLong(largeSize);
+		LittleEndianOutputStream trailer = new LittleEndianOutputStream();
+		trailer.writeLocalHeader("small.dat", crc.getValue(), 1, 0);
+		trailer.write(42);
+		long centralDirectoryOffset = smallOffset + trailer.size();
+		trailer.writeCentralDirectoryHeader("large.dat", 0, 0xFFFFFFFFL, 20, 0);
+		trailer.writeShort(1).writeShort(16).writeLong(largeSize).writeLong(largeSize);
+		trailer.writeCentralDirectoryHeader("small.dat", crc.getValue(), 1, 12,
+				0xFFFFFFFFL);
+		trailer.writeShort(1).writeShort(8).writeLong(smallOffset);
+		long centralDirectorySize = smallOffset + trailer.size()
+				- centralDirectoryOffset;
+		long zip64RecordOffset = smallOffset + trailer.size();
+		trailer.writeInt(0x06064b50).writeLong(44).writeShort(45).writeShort(45);
+		trailer.writeInt(0).writeInt(0).writeLong(2).writeLong(2);
+		trailer.writeLong(centralDirectorySize).writeLong(centralDirectoryOffset);
+		trailer.writeInt(0x07064b50).writeInt(0).writeLong(zip64RecordOffset)
+				.writeInt(1);
+		trailer.writeInt(0x06054b50).writeShort(0).writeShort(0).writeShort(0xFFFF)
+				.writeShort(0xFFFF).writeInt(0xFFFFFFFFL).writeInt(0xFFFFFFFFL)
+				.writeShort(0);
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.write(large.toByteArray());
+			randomAccessFile.seek(smallOffset);
+			randomAccessFile.write(trailer.toByteArray());
+		}
+		finally {
+			randomAccessFile.close();
+		}
+	}
+
+	@Test
+	public void getJarEntryReturnsSameInstance() throws Exception {
+		assertThat(this.jarFile.getJarEntry("1.dat"),
+				sameInstance(this.jarFile.getJarEntry("1.dat")));
+	}
+
+	@Test
+	public void getEntryAttributes() throws Exception {
+		assertThat(this.jarFile.getJarEntry("1.dat").getAttributes(), nullValue());
+	}
+
+	@Test
+	public void getNestedJarFileWithoutEndRecord() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ZipOutputStream zipOutputStream = new ZipOutputStream(bytes);
+		zipOutputStream.putNextEntry(new ZipEntry("a/"));
+		zipOutputStream.closeEntry();
+		zipOutputStream.putNextEntry(new ZipEntry("a/1.dat"));
+		zipOutputStream.write(new byte[] { 1, 2, 3 });
+		zipOutputStream.closeEntry();
+		// Only keep the local file headers and data, not the central directory
+		int length = bytes.size();
+		zipOutputStream.close();
+		byte[] nestedBytes = Arrays.copyOf(bytes.toByteArray(), length);
+		// The JDK requires the root jar to be valid so the archive must be nested
+		File file = this.temporaryFolder.newFile();
+		ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file));
+		try {
+			ZipEntry nestedEntry = new ZipEntry("nested.jar");
+			nestedEntry.setMethod(ZipEntry.STORED);
+			nestedEntry.setSize(nestedBytes.length);
+			CRC32 crc = new CRC32();
+			crc.update(nestedBytes);
+			nestedEntry.setCrc(crc.getValue());
+			outputStream.putNextEntry(nestedEntry);
+			outputStream.write(nestedBytes);
+			outputStream.closeEntry();
+		}
+		finally {
+			outputStream.close();
+		}
+		RandomAccessJarFile rootJarFile = new RandomAccessJarFile(file);
+		RandomAccessJarFile jarFile = rootJarFile.getNestedJarFile(rootJarFile
+				.getEntry("nested.jar"));
+		assertThat(Collections.list(jarFile.entries()).size(), equalTo(2));
+		assertThat(jarFile.getEntry("a").isDirectory(), equalTo(true));
+		InputStream inputStream = jarFile.getInputStream(jarFile.getEntry("a/1.dat"));
+		assertThat(inputStream.read(), equalTo(1));
+		assertThat(inputStream.read(), equalTo(2));
+		assertThat(inputStream.read(), equalTo(3));
+		assertThat(inputStream.read(), equalTo(-1));
+	}
+
+	@Test
+	public void createFromFileWithoutCentralDirectory() throws Exception {
+		File file = this.temporaryFolder.newFile();
+		FileOutputStream outputStream = new FileOutputStream(file);
+		outputStream.write(new byte[100]);
+		outputStream.close();
+		this.thrown.expect(ZipException.class);
+		new RandomAccessJarFile(file);
+	}
+
 	@Test
 	public void getInputStream() throws Exception {
 		InputStream inputStream = this.jarFile.getInputStream(this.jarFile
@@ -119,6 +310,47 @@ public class RandomAccessJarFileTests {
 		assertThat(inputStream.read(), equalTo(-1));
 	}
 
+	@Test
+	public void countsBytesReadWhenStatisticsEnabled() throws Exception {
+		RandomAccessJarFile.setStatisticsEnabled(true);
+		try {
+			long bytesRead = RandomAccessJarFile.getBytesRead();
+			long bytesInflated = RandomAccessJarFile.getBytesInflated();
+			ZipEntry deflated = this.jarFile.getEntry("1.dat");
+			ZipEntry stored = this.jarFile.getEntry("nested.jar");
+			readFully(this.jarFile.getInputStream(deflated));
+			readFully(this.jarFile.getInputStream(stored));
+			assertThat(RandomAccessJarFile.getBytesRead() - bytesRead,
+					equalTo(deflated.getCompressedSize() + stored.getSize()));
+			assertThat(RandomAccessJarFile.getBytesInflated() - bytesInflated,
+					equalTo(1L));
+		}
+		finally {
+			RandomAccessJarFile.setStatisticsEnabled(false);
+		}
+	}
+
+	@Test
+	public void doesNotCountBytesReadWhenStatisticsDisabled() throws Exception {
+		long bytesRead = RandomAccessJarFile.getBytesRead();
+		long bytesInflated = RandomAccessJarFile.getBytesInflated();
+		readFully(this.jarFile.getInputStream(this.jarFile.getEntry("1.dat")));
+		readFully(this.jarFile.getInputStream(this.jarFile.getEntry("nested.jar")));
+		assertThat(RandomAccessJarFile.getBytesRead(), equalTo(bytesRead));
+		assertThat(RandomAccessJarFile.getBytesInflated(), equalTo(bytesInflated));
+	}
+
+	private void readFully(InputStream inputStream) throws IOException {
+		try {
+			byte[] buffer = new byte[4096];
+			while (inputStream.read(buffer) != -1) {
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
 	@Test
 	public void getName() throws Exception {
 		assertThat(this.jarFile.getName(), equalTo(this.rootJarFile.getPath()));
@@ -279,4 +511,48 @@ public class RandomAccessJarFileTests {
 		assertThat(this.jarFile.getNestedJarFile(this.jarFile.getEntry("nested.jar"))
 				.toString(), equalTo(this.rootJarFile.getPath() + "!/nested.jar"));
 	}
+	/**
+	 * Writes little endian ZIP structures.
+	 */
+	private static class LittleEndianOutputStream extends ByteArrayOutputStream {
+
+		public LittleEndianOutputStream writeShort(int value) {
+			return writeValue(value, 2);
+		}
+
+		public LittleEndianOutputStream writeInt(long value) {
+			return writeValue(value, 4);
+		}
+
+		public LittleEndianOutputStream writeLong(long value) {
+			return writeValue(value, 8);
+		}
+
+		private LittleEndianOutputStream writeValue(long value, int length) {
+			for (int i = 0; i < length; i++) {
+				write((int) (value >> (i * 8)) & 0xFF);
+			}
+			return this;
+		}
+
+		public void writeLocalHeader(String name, long crc, long size, int extraLength)
+				throws IOException {
+			writeInt(0x04034b50).writeShort(45).writeShort(0).writeShort(0);
+			writeShort(0).writeShort(DOS_DATE).writeInt(crc).writeInt(size)
+					.writeInt(size).writeShort(name.length()).writeShort(extraLength);
+			write(name.getBytes("UTF-8"));
+		}
+
+		public void writeCentralDirectoryHeader(String name, long crc, long size,
+				int extraLength, long offset) throws IOException {
+			writeInt(0x02014b50).writeShort(45).writeShort(45).writeShort(0)
+					.writeShort(0);
+			writeShort(0).writeShort(DOS_DATE).writeInt(crc).writeInt(size)
+					.writeInt(size).writeShort(name.length()).writeShort(extraLength);
+			writeShort(0).writeShort(0).writeShort(0).writeInt(0).writeInt(offset);
+			write(name.getBytes("UTF-8"));
+		}
+
+	}
+
 }
@@ -0,0 +1,50 @@
+package org.test;
+
+import java.io.File;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SampleApplication implements DisposableBean {
+
+	private static final String RESTARTED = "sample.restarted";
+
+	public static void main(String[] args) throws Exception {
+		final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(
+				SampleApplication.class);
+		context.registerShutdownHook();
+		if (System.getProperty(RESTARTED) != null) {
+			System.out.println("I haz been restarted");
+			context.close();
+			return;
+		}
+		System.setProperty(RESTARTED, "true");
+		System.out.println("I haz been run");
+		// Change the compiled class and keep running until the context is closed
+		File classFile = new File(SampleApplication.class.getResource(
+				"SampleApplication.class").toURI());
+		classFile.setLastModified(classFile.lastModified() + 5000);
+		new Thread() {
+			@Override
+			public void run() {
+				long timeout = System.currentTimeMillis() + 30000;
+				while (context.isActive() && System.currentTimeMillis() < timeout) {
+					try {
+						Thread.sleep(100);
+					}
+					catch (InterruptedException ex) {
+						return;
+					}
+				}
+			}
+		}.start();
+	}
+
+	@Override
+	public void destroy() {
+		System.out.println("I haz been stopped");
+	}
+
+}
@@ -0,0 +1,4 @@
+def file = new File(basedir, "build.log")
+def text = file.text
+return text.contains("I haz been run") && text.contains("I haz been stopped") &&
+		text.contains("I haz been restarted")
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.maven;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Fingerprints of the inputs used to repackage an archive along with the output that
+ * they produced. Saved next to the repackaged archive so that later builds can skip
+ * repackaging when nothing has changed. Files are fingerprinted by size and SHA-1
+ * checksum, the checksum being reused from the previous fingerprint when the size and
+ * modification time of the file have not changed.
+ *
+ * @author agent
+ */
+class RepackageFingerprint {
+
+	private static final String INPUT_PREFIX = "input.";
+
+	private static final String TIME_PREFIX = "time.";
+
+	private static final String OUTPUT = "output";
+
+	private static final int BUFFER_SIZE = 4096;
+
+	private final Properties properties = new Properties();
+
+	/**
+	 * Add a simple input value.
+	 * @param name the name of the input
+	 * @param value the value (may be {@code null})
+	 */
+	public void addInput(String name, String value) {
+		this.properties.setProperty(INPUT_PREFIX + name, (value == null ? "" : value));
+	}
+
+	/**
+	 * Add an input file.
+	 * @param name the name of the input
+	 * @param file the file
+	 * @param previous the previous fingerprint, used to avoid calculating the checksum
+	 * of unmodified files
+	 * @throws IOException if the file cannot be read
+	 */
+	public void addInput(String name, File file, RepackageFingerprint previous)
+			throws IOException {
+		putFile(INPUT_PREFIX + name, file, previous);
+	}
+
+	/**
+	 * Set the output file produced from the inputs.
+	 * @param file the output file
+	 * @throws IOException if the file cannot be read
+	 */
+	public void setOutput(File file) throws IOException {
+		putFile(OUTPUT, file, null);
+	}
+
+	/**
+	 * Returns {@code true} if the specified file is the recorded output.
+	 * @param file the file to check
+	 * @return if the file is the unmodified output
+	 * @throws IOException if the file cannot be read
+	 */
+	public boolean isOutput(File file) throws IOException {
+		String output = this.properties.getProperty(OUTPUT);
+		return (output != null && file.isFile() && output.equals(getFingerprint(OUTPUT,
+				file, this)));
+	}
+
+	/**
+	 * Returns {@code true} if this fingerprint has the same inputs as another.
+	 * @param other the fingerprint to compare
+	 * @return if the inputs are the same
+	 */
+	public boolean hasSameInputs(RepackageFingerprint other) {
+		return getInputs().equals(other.getInputs());
+	}
+
+	private Map<String, String> getInputs() {
+		Map<String, String> inputs = new TreeMap<String, String>();
+		for (String name : this.properties.stringPropertyNames()) {
+			if (name.startsWith(INPUT_PREFIX)) {
+				inputs.put(name, this.properties.getProperty(name));
+			}
+		}
+		return inputs;
+	}
+
+	private void putFile(String key, File file, RepackageFingerprint previous)
+			throws IOException {
+		this.properties.setProperty(key, getFingerprint(key, file, previous));
+		this.properties.setProperty(TIME_PREFIX + key,
+				String.valueOf(file.lastModified()));
+	}
+
+	private String getFingerprint(String key, File file, RepackageFingerprint previous)
+			throws IOException {
+		String prefix = file.length() + ",";
+		if (previous != null) {
+			String fingerprint = previous.properties.getProperty(key);
+			String time = previous.properties.getProperty(TIME_PREFIX + key);
+			if (fingerprint != null && fingerprint.startsWith(prefix)
+					&& String.valueOf(file.lastModified()).equals(time)) {
+				return fingerprint;
+			}
+		}
+		return prefix + getChecksum(file);
+	}
+
+	private String getChecksum(File file) throws IOException {
+		MessageDigest digest = getMessageDigest();
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int bytesRead;
+			while ((bytesRead = inputStream.read(buffer)) != -1) {
+				digest.update(buffer, 0, bytesRead);
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+		StringBuilder checksum = new StringBuilder();
+		for (byte b : digest.digest()) {
+			checksum.append(String.format("%02x", b & 0xFF));
+		}
+		return checksum.toString();
+	}
+
+	private MessageDigest getMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Save the fingerprint to the specified file.
+	 * @param file the destination file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(File file) throws IOException {
+		OutputStream outputStream = new FileOutputStream(file);
+		try {
+			this.properties.store(outputStream, "Spring Boot repackage fingerprint");
+		}
+		finally {
+			outputStream.close();
+		}
+	}
+
+	/**
+	 * Load a previously saved fingerprint. If the file does not exist or cannot be read
+	 * an empty fingerprint is returned.
+	 * @param file the file to load
+	 * @return the fingerprint
+	 */
+	public static RepackageFingerprint load(File file) {
+		RepackageFingerprint fingerprint = new RepackageFingerprint();
+		if (file.isFile()) {
+			try {
+				InputStream inputStream = new FileInputStream(file);
+				try {
+					fingerprint.properties.load(inputStream);
+				}
+				finally {
+					inputStream.close();
+				}
+			}
+			catch (IOException ex) {
+				return new RepackageFingerprint();
+			}
+		}
+		return fingerprint;
+	}
+
+}
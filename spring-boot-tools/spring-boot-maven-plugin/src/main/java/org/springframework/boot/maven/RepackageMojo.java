@@ -19,6 +19,7 @@ package org.springframework.boot.maven;
 import java.io.File;
 import java.io.IOException;
 
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -29,6 +30,8 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
+import org.springframework.boot.loader.tools.Layout;
+import org.springframework.boot.loader.tools.Layouts;
 import org.springframework.boot.loader.tools.Libraries;
 import org.springframework.boot.loader.tools.Repackager;
 
@@ -81,15 +84,22 @@ public class RepackageMojo extends AbstractMojo {
 	@Parameter
 	private String mainClass;
 
+	/**
+	 * The number of threads used to compress entries. Only entries that are not copied
+	 * as-is from the original archive are compressed so the default of a single thread
+	 * is usually sufficient.
+	 */
+	@Parameter(defaultValue = "1")
+	private int compressionThreads;
+
 	@Override
 	public void execute() throws MojoExecutionException, MojoFailureException {
 		File source = this.project.getArtifact().getFile();
 		File target = getTargetFile();
-		Repackager repackager = new Repackager(source);
-		repackager.setMainClass(this.mainClass);
-		Libraries libraries = new ArtifactsLibraries(this.project.getArtifacts());
+		File fingerprintFile = new File(this.outputDirectory, target.getName()
+				+ ".fingerprint");
 		try {
-			repackager.repackage(target, libraries);
+			repackage(source, target, fingerprintFile);
 		}
 		catch (IOException ex) {
 			throw new MojoExecutionException(ex.getMessage(), ex);
@@ -103,6 +113,67 @@ public class RepackageMojo extends AbstractMojo {
 		}
 	}
 
+	private void repackage(File source, File target, File fingerprintFile)
+			throws IOException {
+		RepackageFingerprint previous = RepackageFingerprint.load(fingerprintFile);
+		Layout layout = Layouts.forFile(source);
+		if (source.equals(target) && previous.isOutput(source)) {
+			// The archive was not rebuilt after being repackaged in place, use the
+			// backup of the original
+			File original = new File(source.getParentFile(), source.getName()
+					+ ".original");
+			if (original.isFile()) {
+				source = original;
+			}
+		}
+		RepackageFingerprint fingerprint = getFingerprint(source, layout, previous);
+		if (fingerprint.hasSameInputs(previous) && previous.isOutput(target)) {
+			getLog().info("Repackaged archive is up to date: " + target);
+			return;
+		}
+		fingerprintFile.delete();
+		Repackager repackager = new Repackager(source);
+		repackager.setMainClass(this.mainClass);
+		repackager.setLayout(layout);
+		repackager.setIncremental(true);
+		repackager.setCompressionThreads(this.compressionThreads);
+		Libraries libraries = new ArtifactsLibraries(this.project.getArtifacts());
+		repackager.repackage(target, libraries);
+		fingerprint.setOutput(target);
+		fingerprint.save(fingerprintFile);
+	}
+
+	private RepackageFingerprint getFingerprint(File source, Layout layout,
+			RepackageFingerprint previous) throws IOException {
+		RepackageFingerprint fingerprint = new RepackageFingerprint();
+		fingerprint.addInput("source", source, previous);
+		fingerprint.addInput("mainClass", this.mainClass);
+		fingerprint.addInput("layout", layout.getClass().getName());
+		File tools = getCodeSource(Repackager.class);
+		if (tools != null) {
+			fingerprint.addInput("tools", tools, previous);
+		}
+		for (Artifact artifact : this.project.getArtifacts()) {
+			if (artifact.getFile() != null) {
+				String name = "artifact." + artifact.getId();
+				fingerprint.addInput(name, artifact.getFile(), previous);
+				fingerprint.addInput(name + ".scope", artifact.getScope());
+			}
+		}
+		return fingerprint;
+	}
+
+	private File getCodeSource(Class<?> type) {
+		try {
+			File file = new File(type.getProtectionDomain().getCodeSource()
+					.getLocation().toURI());
+			return (file.isFile() ? file : null);
+		}
+		catch (Exception ex) {
+			return null;
+		}
+	}
+
 	private File getTargetFile() {
 		String classifier = (this.classifier == null ? "" : this.classifier.trim());
 		if (classifier.length() > 0 && !classifier.startsWith("-")) {
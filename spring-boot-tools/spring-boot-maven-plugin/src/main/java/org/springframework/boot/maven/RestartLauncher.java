@@ -0,0 +1,243 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.maven;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Launcher used in the JVM forked by {@link RunMojo}. Dependencies are loaded by the
+ * system class loader and remain loaded for the life of the JVM. Project classes are
+ * loaded by a disposable child class loader. Whenever the contents of a folder on the
+ * child classpath change the application is stopped, by running the shutdown hooks that
+ * it has registered (for example to close a Spring {@code ApplicationContext}), and its
+ * main method is called again using a new child class loader.
+ * <p>
+ * Until it is first restarted, the launcher exits once the application has no remaining
+ * non-daemon threads so that applications that simply run to completion finish as they
+ * would without it. After a restart it keeps watching for changes, even if the
+ * application fails, until the JVM is stopped.
+ * <p>
+ * Arguments are the start class name, the child classpath and then any application
+ * arguments. Only depends on the JDK since it is the only plugin class on the classpath
+ * of the forked JVM.
+ *
+ * @author agent
+ */
+public class RestartLauncher {
+
+	private static int runnerCounter = 0;
+
+	private final String startClassName;
+
+	private final URL[] urls;
+
+	private final List<File> folders = new ArrayList<File>();
+
+	private final String[] args;
+
+	private volatile boolean failed;
+
+	RestartLauncher(String startClassName, String classpath, String[] args)
+			throws MalformedURLException {
+		this.startClassName = startClassName;
+		List<URL> urls = new ArrayList<URL>();
+		for (String path : classpath.split(File.pathSeparator)) {
+			if (path.length() > 0) {
+				File file = new File(path);
+				urls.add(file.toURI().toURL());
+				if (file.isDirectory()) {
+					this.folders.add(file);
+				}
+			}
+		}
+		this.urls = urls.toArray(new URL[urls.size()]);
+		this.args = args;
+	}
+
+	/**
+	 * Run the application, restarting it whenever project classes change. If the
+	 * application has not been restarted the method returns once it no longer has any
+	 * non-daemon threads. Once restarted, changes continue to be watched even if the
+	 * application stops (for example because a restart failed) so that a later change
+	 * can fix it.
+	 * @return {@code true} if the application completed without error
+	 * @throws Exception on error
+	 */
+	public boolean run() throws Exception {
+		Map<File, Long> snapshot = getSnapshot();
+		Map<File, Long> changed = null;
+		boolean restarted = false;
+		boolean waiting = false;
+		start();
+		while (true) {
+			Thread.sleep(TimeUnit.SECONDS.toMillis(1));
+			if (!hasNonDaemonThreads()) {
+				if (!restarted) {
+					return !this.failed;
+				}
+				if (!waiting) {
+					System.out.println("Waiting for changes to restart "
+							+ this.startClassName);
+					waiting = true;
+				}
+			}
+			Map<File, Long> current = getSnapshot();
+			if (changed != null && changed.equals(current)) {
+				// Only restart once the folders have stopped changing (e.g. a compile
+				// has finished writing classes)
+				snapshot = current;
+				changed = null;
+				if (stop()) {
+					System.out.println("Restarting " + this.startClassName);
+					restarted = true;
+					waiting = false;
+					start();
+				}
+			}
+			else if (!snapshot.equals(current)) {
+				changed = current;
+			}
+		}
+	}
+
+	private void start() {
+		this.failed = false;
+		ClassLoader classLoader = new URLClassLoader(this.urls, getClass()
+				.getClassLoader());
+		new RunThread(classLoader).start();
+	}
+
+	/**
+	 * Stop the application by running, and then clearing, the shutdown hooks that it
+	 * has registered.
+	 * @return {@code true} if the application was stopped
+	 */
+	private boolean stop() {
+		try {
+			Class<?> hooksClass = Class.forName("java.lang.ApplicationShutdownHooks");
+			Method runHooks = hooksClass.getDeclaredMethod("runHooks");
+			runHooks.setAccessible(true);
+			runHooks.invoke(null);
+			Field hooks = hooksClass.getDeclaredField("hooks");
+			hooks.setAccessible(true);
+			hooks.set(null, new IdentityHashMap<Thread, Thread>());
+			return true;
+		}
+		catch (Exception ex) {
+			System.err.println("Unable to restart " + this.startClassName
+					+ ", the shutdown hooks of the JVM cannot be run (" + ex + ")");
+			return false;
+		}
+	}
+
+	private boolean hasNonDaemonThreads() {
+		ThreadGroup group = Thread.currentThread().getThreadGroup();
+		while (group.getParent() != null) {
+			group = group.getParent();
+		}
+		Thread[] threads = new Thread[group.activeCount() + 16];
+		int count = group.enumerate(threads, true);
+		for (int i = 0; i < count; i++) {
+			Thread thread = threads[i];
+			if (thread != Thread.currentThread() && !thread.isDaemon()
+					&& thread.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Map<File, Long> getSnapshot() {
+		Map<File, Long> snapshot = new HashMap<File, Long>();
+		for (File folder : this.folders) {
+			addToSnapshot(snapshot, folder);
+		}
+		return snapshot;
+	}
+
+	private void addToSnapshot(Map<File, Long> snapshot, File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				if (child.isDirectory()) {
+					addToSnapshot(snapshot, child);
+				}
+				else {
+					snapshot.put(child, child.lastModified());
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: RestartLauncher <start-class> <classpath> "
+					+ "[<args>...]");
+			System.exit(1);
+		}
+		if (!new RestartLauncher(args[0], args[1], Arrays.copyOfRange(args, 2,
+				args.length)).run()) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Thread used to call the main method of the application with the correct context
+	 * classloader.
+	 */
+	private class RunThread extends Thread {
+
+		public RunThread(ClassLoader classLoader) {
+			super("runner-" + (runnerCounter++));
+			setContextClassLoader(classLoader);
+		}
+
+		@Override
+		public void run() {
+			try {
+				Class<?> startClass = getContextClassLoader().loadClass(
+						RestartLauncher.this.startClassName);
+				Method mainMethod = startClass.getMethod("main", String[].class);
+				mainMethod.setAccessible(true);
+				mainMethod.invoke(null, new Object[] { RestartLauncher.this.args });
+			}
+			catch (InvocationTargetException ex) {
+				RestartLauncher.this.failed = true;
+				ex.getTargetException().printStackTrace();
+			}
+			catch (Exception ex) {
+				RestartLauncher.this.failed = true;
+				ex.printStackTrace();
+			}
+		}
+
+	}
+
+}
@@ -18,11 +18,16 @@ package org.springframework.boot.maven;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.maven.artifact.Artifact;
@@ -35,6 +40,7 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
 import org.springframework.boot.loader.tools.MainClassFinder;
 
 /**
@@ -87,9 +93,32 @@ public class RunMojo extends AbstractMojo {
 	@Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
 	private File classesDirectrory;
 
+	/**
+	 * Run the application in a forked JVM. Dependencies remain loaded in the forked JVM
+	 * and project classes are loaded by a disposable class loader so that the
+	 * application can be quickly restarted whenever they change. The application is
+	 * stopped by running the shutdown hooks that it has registered (for example to close
+	 * a Spring {@code ApplicationContext}) before its main method is called again. The
+	 * forked JVM exits once the application has no remaining non-daemon threads.
+	 */
+	@Parameter(property = "run.fork", defaultValue = "false")
+	private boolean fork;
+
+	/**
+	 * JVM arguments that should be used when running the application in a forked JVM.
+	 * Arguments are separated by spaces, quotes can be used for arguments that contain
+	 * spaces.
+	 */
+	@Parameter(property = "run.jvmArguments")
+	private String jvmArguments;
+
 	@Override
 	public void execute() throws MojoExecutionException, MojoFailureException {
 		final String startClassName = getStartClass();
+		if (this.fork) {
+			runForked(startClassName);
+			return;
+		}
 		IsolatedThreadGroup threadGroup = new IsolatedThreadGroup(startClassName);
 		Thread launchThread = new Thread(threadGroup, new LaunchRunner(startClassName,
 				this.arguments), startClassName + ".main()");
@@ -99,6 +128,127 @@ public class RunMojo extends AbstractMojo {
 		threadGroup.rethrowUncaughtException();
 	}
 
+	private void runForked(String startClassName) throws MojoExecutionException {
+		List<String> command = new ArrayList<String>();
+		command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+		if (!System.getProperty("java.specification.version").startsWith("1.")) {
+			// Allow RestartLauncher to run shutdown hooks on Java 9 and later
+			command.add("--add-opens=java.base/java.lang=ALL-UNNAMED");
+		}
+		command.addAll(getJvmArguments());
+		command.add("-cp");
+		command.add(getForkedClassPath());
+		command.add(RestartLauncher.class.getName());
+		command.add(startClassName);
+		command.add(getProjectClassPath());
+		if (this.arguments != null) {
+			command.addAll(Arrays.asList(this.arguments));
+		}
+		final Process process = startProcess(command);
+		try {
+			Thread shutdownHook = new Thread() {
+				@Override
+				public void run() {
+					process.destroy();
+				}
+			};
+			Runtime.getRuntime().addShutdownHook(shutdownHook);
+			copy(process.getInputStream(), System.out);
+			int exitCode = process.waitFor();
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			if (exitCode != 0) {
+				throw new MojoExecutionException("Application finished with exit code: "
+						+ exitCode);
+			}
+		}
+		catch (IOException ex) {
+			throw new MojoExecutionException("Unable to run forked application", ex);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			process.destroy();
+			throw new MojoExecutionException(
+					"Interrupted while running forked application", ex);
+		}
+	}
+
+	private Process startProcess(List<String> command) throws MojoExecutionException {
+		try {
+			return new ProcessBuilder(command).redirectErrorStream(true).start();
+		}
+		catch (IOException ex) {
+			throw new MojoExecutionException("Unable to run forked application", ex);
+		}
+	}
+
+	private List<String> getJvmArguments() throws MojoExecutionException {
+		if (this.jvmArguments == null || this.jvmArguments.trim().length() == 0) {
+			return Collections.emptyList();
+		}
+		try {
+			return Arrays.asList(CommandLineUtils.translateCommandline(this.jvmArguments));
+		}
+		catch (Exception ex) {
+			throw new MojoExecutionException("Unable to parse jvmArguments '"
+					+ this.jvmArguments + "'", ex);
+		}
+	}
+
+	private String getForkedClassPath() throws MojoExecutionException {
+		try {
+			List<URL> urls = new ArrayList<URL>();
+			urls.add(RestartLauncher.class.getProtectionDomain().getCodeSource()
+					.getLocation());
+			addDependencies(urls);
+			return toClassPath(urls);
+		}
+		catch (MalformedURLException ex) {
+			throw new MojoExecutionException("Unable to build classpath", ex);
+		}
+	}
+
+	private String getProjectClassPath() throws MojoExecutionException {
+		try {
+			List<URL> urls = new ArrayList<URL>();
+			addUserDefinedFolders(urls);
+			addResources(urls);
+			addProjectClasses(urls);
+			return toClassPath(urls);
+		}
+		catch (MalformedURLException ex) {
+			throw new MojoExecutionException("Unable to build classpath", ex);
+		}
+	}
+
+	private String toClassPath(List<URL> urls) throws MojoExecutionException {
+		StringBuilder classPath = new StringBuilder();
+		for (URL url : urls) {
+			try {
+				classPath.append(classPath.length() == 0 ? "" : File.pathSeparator);
+				classPath.append(new File(url.toURI()).getPath());
+			}
+			catch (URISyntaxException ex) {
+				throw new MojoExecutionException("Unable to build classpath", ex);
+			}
+		}
+		return classPath.toString();
+	}
+
+	private void copy(InputStream inputStream, OutputStream outputStream)
+			throws IOException {
+		try {
+			byte[] buffer = new byte[4096];
+			int bytesRead;
+			while ((bytesRead = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, bytesRead);
+				outputStream.flush();
+			}
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
 	private final String getStartClass() throws MojoExecutionException {
 		String mainClass = this.mainClass;
 		if (mainClass == null) {
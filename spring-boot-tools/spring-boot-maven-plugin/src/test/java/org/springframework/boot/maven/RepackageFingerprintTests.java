@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012-2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.boot.maven;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RepackageFingerprint}.
+ *
+ * @author agent
+ */
+public class RepackageFingerprintTests {
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void sameInputsAfterSaveAndLoad() throws Exception {
+		File library = createFile("library.jar", "library");
+		RepackageFingerprint fingerprint = new RepackageFingerprint();
+		fingerprint.addInput("mainClass", "a.b.Main");
+		fingerprint.addInput("library", library, null);
+		File file = this.temporaryFolder.newFile("fingerprint");
+		fingerprint.save(file);
+		RepackageFingerprint loaded = RepackageFingerprint.load(file);
+		assertTrue(fingerprint.hasSameInputs(loaded));
+	}
+
+	@Test
+	public void differentValue() throws Exception {
+		RepackageFingerprint fingerprint = new RepackageFingerprint();
+		fingerprint.addInput("mainClass", "a.b.Main");
+		RepackageFingerprint other = new RepackageFingerprint();
+		other.addInput("mainClass", "a.b.Other");
+		assertFalse(fingerprint.hasSameInputs(other));
+	}
+
+	@Test
+	public void modifiedFileWithSameContent() throws Exception {
+		File library = createFile("library.jar", "library");
+		RepackageFingerprint previous = new RepackageFingerprint();
+		previous.addInput("library", library, null);
+		library.setLastModified(library.lastModified() - 10000);
+		RepackageFingerprint fingerprint = new RepackageFingerprint();
+		fingerprint.addInput("library", library, previous);
+		assertTrue(fingerprint.hasSameInputs(previous));
+	}
+
+	@Test
+	public void changedFile() throws Exception {
+		File library = createFile("library.jar", "library");
+		RepackageFingerprint previous = new RepackageFingerprint();
+		previous.addInput("library", library, null);
+		createFile("library.jar", "librarx");
+		library.setLastModified(library.lastModified() - 10000);
+		RepackageFingerprint fingerprint = new RepackageFingerprint();
+		fingerprint.addInput("library", library, previous);
+		assertFalse(fingerprint.hasSameInputs(previous));
+	}
+
+	@Test
+	public void isOutput() throws Exception {
+		File output = createFile("output.jar", "output");
+		RepackageFingerprint fingerprint = new RepackageFingerprint();
+		fingerprint.setOutput(output);
+		assertTrue(fingerprint.isOutput(output));
+		createFile("output.jar", "changed");
+		assertFalse(fingerprint.isOutput(output));
+		assertFalse(fingerprint.isOutput(new File(output.getParentFile(), "missing")));
+	}
+
+	@Test
+	public void loadMissing() throws Exception {
+		RepackageFingerprint fingerprint = RepackageFingerprint.load(new File(
+				this.temporaryFolder.getRoot(), "missing"));
+		assertTrue(fingerprint.hasSameInputs(new RepackageFingerprint()));
+		assertFalse(fingerprint.isOutput(createFile("output.jar", "output")));
+	}
+
+	private File createFile(String name, String content) throws IOException {
+		File file = new File(this.temporaryFolder.getRoot(), name);
+		FileOutputStream outputStream = new FileOutputStream(file);
+		try {
+			outputStream.write(content.getBytes());
+		}
+		finally {
+			outputStream.close();
+		}
+		return file;
+	}
+
+}